@@ -0,0 +1,85 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop load generator for the catalogue. Each client runs on its own virtual thread and issues requests
+ * back to back for the given duration. A {@code {random}} placeholder in the path is replaced with a random
+ * number between 1 and 100 on every request.
+ * <p>
+ * Usage: {@code java loadtest/CatalogueLoadTest.java <baseUrl> <clients> <seconds> <path>}, for example
+ * {@code java loadtest/CatalogueLoadTest.java http://localhost:8088 1000 30 "/books?limit=50&after={random}"}.
+ */
+public class CatalogueLoadTest {
+
+    public static void main(String[] args) throws Exception {
+
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8088";
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        String path = args.length > 3 ? args[3] : "/books?limit=50&after={random}";
+
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+
+        AtomicLong errors = new AtomicLong();
+        List<List<Long>> latencies = new ArrayList<>();
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                List<Long> samples = new ArrayList<>();
+                latencies.add(samples);
+                executor.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        String target = path.replace("{random}",
+                                Integer.toString(ThreadLocalRandom.current().nextInt(1, 101)));
+                        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + target))
+                                .timeout(Duration.ofSeconds(30))
+                                .GET()
+                                .build();
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() >= 400) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                        samples.add(System.nanoTime() - start);
+                    }
+                    return null;
+                });
+            }
+        }
+
+        List<Long> all = new ArrayList<>();
+        latencies.forEach(all::addAll);
+        Collections.sort(all);
+
+        System.out.printf("clients=%d duration=%ds requests=%d errors=%d%n", clients, seconds, all.size(), errors.get());
+        System.out.printf("throughput=%.1f req/s%n", all.size() / (double) seconds);
+        System.out.printf("p50=%.1fms p99=%.1fms max=%.1fms%n",
+                percentile(all, 0.50), percentile(all, 0.99), percentile(all, 1.0));
+    }
+
+    private static double percentile(List<Long> sorted, double percentile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.size()) - 1;
+        return sorted.get(Math.max(0, index)) / 1_000_000.0;
+    }
+}
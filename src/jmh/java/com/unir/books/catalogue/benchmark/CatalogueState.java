@@ -0,0 +1,103 @@
+package com.unir.books.catalogue.benchmark;
+
+import com.unir.books.catalogue.BooksCatalogueApplication;
+import com.unir.books.catalogue.data.BookRepository;
+import com.unir.books.catalogue.data.model.Book;
+import com.unir.books.catalogue.service.BooksCatalogueService;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Boots the service against a private in-memory H2 database seeded with {@code catalogueSize} generated books.
+ * With {@code caches=false} the book and search result caches are sized to zero, so every call reaches the database.
+ */
+@State(Scope.Benchmark)
+public class CatalogueState {
+
+    static final String[] CATEGORIES = {"Novela", "Thriller", "Ciencia Ficcion", "Ensayo", "Poesia",
+            "Realismo magico", "Literatura infantil", "Historia"};
+
+    private static final String[] WORDS = {"sombra", "viento", "ciudad", "noche", "mar", "tiempo", "camino",
+            "fuego", "silencio", "jardin", "memoria", "rio", "luz", "invierno", "ultimo", "secreto"};
+
+    private static final int AUTHORS = 2000;
+
+    @Param({"10000"})
+    public int catalogueSize;
+
+    @Param({"true", "false"})
+    public boolean caches;
+
+    ConfigurableApplicationContext context;
+    BookRepository repository;
+    BooksCatalogueService service;
+    long firstId;
+
+    @Setup(Level.Trial)
+    public void start() {
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        context = new SpringApplicationBuilder(BooksCatalogueApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--eureka.client.enabled=false",
+                        "--spring.datasource.url=jdbc:h2:mem:benchmark;Mode=MySQL;DB_CLOSE_ON_EXIT=FALSE",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.sql.init.mode=never",
+                        "--logging.level.root=WARN",
+                        "--catalogue.cache.books.max-size=" + (caches ? 100_000 : 0),
+                        "--catalogue.cache.search.max-books=" + (caches ? 1_000_000 : 0));
+        repository = context.getBean(BookRepository.class);
+        service = context.getBean(BooksCatalogueService.class);
+
+        SplittableRandom random = new SplittableRandom(42);
+        List<Book> chunk = new ArrayList<>(1000);
+        for (int i = 0; i < catalogueSize; i++) {
+            chunk.add(book(i, random));
+            if (chunk.size() == 1000 || i == catalogueSize - 1) {
+                List<Book> saved = repository.saveAll(chunk);
+                if (firstId == 0) {
+                    firstId = saved.get(0).getId();
+                }
+                chunk.clear();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    long randomId(SplittableRandom random) {
+        return firstId + random.nextInt(catalogueSize);
+    }
+
+    static String randomWord(SplittableRandom random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    static Book book(int i, SplittableRandom random) {
+        return Book.builder()
+                .title("El " + randomWord(random) + " de la " + randomWord(random) + " " + i)
+                .author("Autor " + randomWord(random) + " " + random.nextInt(AUTHORS))
+                .category(CATEGORIES[random.nextInt(CATEGORIES.length)])
+                .isbn("978-" + i)
+                .published(new Date(random.nextLong(0, 1_700_000_000_000L)))
+                .rating(1 + random.nextInt(5))
+                .price(Math.round(random.nextDouble(5, 60) * 100) / 100.0)
+                .stock(random.nextInt(100))
+                .visible(random.nextInt(10) != 0)
+                .build();
+    }
+}
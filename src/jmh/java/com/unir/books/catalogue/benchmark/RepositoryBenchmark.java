@@ -0,0 +1,60 @@
+package com.unir.books.catalogue.benchmark;
+
+import com.unir.books.catalogue.data.model.Book;
+import com.unir.books.catalogue.data.utils.BookFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read and write hot paths of the catalogue: searches through {@code SearchCriteria}, lookups by id and
+ * merge-patch updates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RepositoryBenchmark {
+
+    private final SplittableRandom random = new SplittableRandom(7);
+
+    @Benchmark
+    public List<Book> searchByCategory(CatalogueState state) {
+        String category = CatalogueState.CATEGORIES[random.nextInt(CatalogueState.CATEGORIES.length)];
+        return state.repository.search(BookFilter.builder().category(category).build());
+    }
+
+    @Benchmark
+    public List<Book> searchByTitle(CatalogueState state) {
+        return state.repository.search(BookFilter.builder().title(CatalogueState.randomWord(random)).build());
+    }
+
+    @Benchmark
+    public List<Book> searchByRatingAndVisible(CatalogueState state) {
+        return state.repository.search(
+                BookFilter.builder().rating(1 + random.nextInt(5)).visible(Boolean.TRUE).build());
+    }
+
+    @Benchmark
+    public Book getBookById(CatalogueState state) {
+        return state.repository.getBookById(state.randomId(random));
+    }
+
+    @Benchmark
+    public Book patchBook(CatalogueState state) {
+        String patch = "{\"price\": " + (5 + random.nextInt(5000) / 100.0) + ", \"visible\": " + random.nextBoolean() + "}";
+        return state.service.updateBook(Long.toString(state.randomId(random)), patch, null);
+    }
+}
@@ -0,0 +1,128 @@
+package com.unir.books.catalogue.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+public class DataSourceConfig {
+
+    /**
+     * Wraps the pooled datasource in a {@link BulkheadDataSource} sized to the Hikari pool. Enabled when virtual
+     * threads are enabled ({@code catalogue.datasource.bulkhead.enabled}).
+     */
+    @Bean
+    @ConditionalOnProperty(name = "catalogue.datasource.bulkhead.enabled", havingValue = "true")
+    public static BeanPostProcessor bulkheadDataSourcePostProcessor(Environment environment,
+                                                                    ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource hikari) {
+                    Duration timeout = environment.getProperty("catalogue.datasource.bulkhead.timeout",
+                            Duration.class, Duration.ofSeconds(5));
+                    return new BulkheadDataSource(hikari, hikari.getMaximumPoolSize(), timeout,
+                            meterRegistry.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * The primary database, configured from {@code spring.datasource} as Spring Boot would, when read replicas are
+     * enabled and the pool is no longer the application datasource itself.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "catalogue.datasource.replicas.enabled", havingValue = "true")
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "catalogue.datasource.replicas.enabled", havingValue = "true")
+    public ReplicaRoutingDataSource replicaRoutingDataSource(
+            @Qualifier("primaryDataSource") DataSource primary, DataSourceProperties properties,
+            MeterRegistry meterRegistry,
+            @Value("${catalogue.datasource.replicas.urls}") List<String> urls,
+            @Value("${catalogue.datasource.replicas.health-interval:5s}") Duration healthInterval,
+            @Value("${catalogue.datasource.replicas.health-timeout:1s}") Duration healthTimeout,
+            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize) {
+
+        if (urls.stream().allMatch(String::isBlank)) {
+            throw new IllegalStateException(
+                    "catalogue.datasource.replicas.urls must list at least one replica when replicas are enabled");
+        }
+
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (String url : urls.stream().filter(url -> !url.isBlank()).toList()) {
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + replicas.size());
+            replica.setJdbcUrl(url);
+            replica.setUsername(properties.determineUsername());
+            replica.setPassword(properties.determinePassword());
+            replica.setMaximumPoolSize(poolSize);
+            replica.setReadOnly(true);
+            replica.setConnectionTimeout(Math.max(250, healthTimeout.toMillis()));
+            // A replica that is down at startup is only left out of the rotation
+            replica.setInitializationFailTimeout(-1);
+            replicas.add(replica);
+        }
+        return new ReplicaRoutingDataSource(primary, replicas, healthInterval, healthTimeout, meterRegistry);
+    }
+
+    /**
+     * The application datasource when read replicas are enabled. Connections are only obtained on the first
+     * statement, once the transaction is known to be read-only or not: read-only transactions are served by the
+     * replicas and everything else by the primary.
+     */
+    @Bean
+    @Primary
+    @ConditionalOnProperty(name = "catalogue.datasource.replicas.enabled", havingValue = "true")
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 ReplicaRoutingDataSource replicas) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primary);
+        dataSource.setReadOnlyDataSource(replicas);
+        return dataSource;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "catalogue.datasource.replicas.enabled", havingValue = "true")
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter(
+            @Value("${catalogue.datasource.replicas.read-your-writes:5s}") Duration window) {
+        FilterRegistrationBean<ReadYourWritesFilter> registration =
+                new FilterRegistrationBean<>(new ReadYourWritesFilter(window));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    /**
+     * Keeps the pinning set by the {@link ReadYourWritesFilter} on the tasks of the application executor, which
+     * runs streamed responses and other asynchronous request processing.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "catalogue.datasource.replicas.enabled", havingValue = "true")
+    public TaskDecorator replicaPinningTaskDecorator() {
+        return ReplicaRoutingDataSource::propagatePinning;
+    }
+}
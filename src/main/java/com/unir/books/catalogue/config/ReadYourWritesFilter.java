@@ -0,0 +1,77 @@
+package com.unir.books.catalogue.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Gives clients read-your-writes consistency over lagging replicas. A request that may write (any method but GET,
+ * HEAD and OPTIONS) gets a cookie with the time until which that client's reads are pinned to the primary, and
+ * requests carrying an unexpired cookie read from the primary too.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    private static final String COOKIE = "catalogue-primary-until";
+
+    private static final Set<String> SAFE_METHODS = Set.of(
+            HttpMethod.GET.name(), HttpMethod.HEAD.name(), HttpMethod.OPTIONS.name());
+
+    private final Duration window;
+
+    public ReadYourWritesFilter(Duration window) {
+        this.window = window;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+
+        long now = System.currentTimeMillis();
+        boolean pinned;
+        if (!SAFE_METHODS.contains(request.getMethod())) {
+            // Set before the chain, since the response may be committed by then; a failed write only costs a
+            // few reads from the primary
+            Cookie cookie = new Cookie(COOKIE, Long.toString(now + window.toMillis()));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) Math.max(1, window.toSeconds()));
+            response.addCookie(cookie);
+            pinned = true;
+        } else {
+            pinned = isPinned(WebUtils.getCookie(request, COOKIE), now, window);
+        }
+
+        if (!pinned) {
+            chain.doFilter(request, response);
+            return;
+        }
+        ReplicaRoutingDataSource.pinToPrimary();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ReplicaRoutingDataSource.unpin();
+        }
+    }
+
+    private static boolean isPinned(Cookie cookie, long now, Duration window) {
+        if (cookie == null) {
+            return false;
+        }
+        try {
+            // Values beyond the window were not set by this filter and must not pin a client forever
+            long until = Long.parseLong(cookie.getValue());
+            return until > now && until <= now + window.toMillis();
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
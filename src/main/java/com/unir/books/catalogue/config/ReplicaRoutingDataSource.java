@@ -0,0 +1,195 @@
+package com.unir.books.catalogue.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Hands out connections for read-only work, round robin over the read replicas that passed their last health
+ * check. A replica that fails to give a connection is marked down until a check succeeds again. Reads fall back to
+ * the primary when no replica is healthy, and while the current thread is {@linkplain #pinToPrimary pinned} to it
+ * so a client reads its own writes.
+ * <p>
+ * Cache misses are read from the replicas too. The book and search caches drop what they hold for a write again
+ * once the read-your-writes window has passed, so a row read from a replica behind by no more than that window is
+ * only cached until then; pinned reads skip those caches.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+    private static final ThreadLocal<Boolean> PINNED = new ThreadLocal<>();
+
+    private final DataSource primary;
+
+    private final List<Replica> replicas;
+
+    private final Duration healthTimeout;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final ScheduledExecutorService healthChecker;
+
+    private final Counter primaryReads;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<HikariDataSource> replicas, Duration healthInterval,
+                                    Duration healthTimeout, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.healthTimeout = healthTimeout;
+        this.replicas = replicas.stream()
+                .map(pool -> new Replica(pool, Counter.builder("books.db.reads")
+                        .description("Connections handed out for read-only transactions")
+                        .tag("target", pool.getPoolName())
+                        .register(meterRegistry)))
+                .toList();
+        this.primaryReads = Counter.builder("books.db.reads")
+                .description("Connections handed out for read-only transactions")
+                .tag("target", "primary")
+                .register(meterRegistry);
+        Gauge.builder("books.db.replicas.healthy", this.replicas,
+                        all -> all.stream().filter(Replica::isHealthy).count())
+                .description("Read replicas that passed their last health check")
+                .register(meterRegistry);
+
+        healthChecker = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("replica-health").daemon().factory());
+        healthChecker.scheduleWithFixedDelay(this::checkHealth, 0, healthInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sends the read-only work of the current thread to the primary until {@link #unpin()}.
+     */
+    public static void pinToPrimary() {
+        PINNED.set(Boolean.TRUE);
+    }
+
+    public static void unpin() {
+        PINNED.remove();
+    }
+
+    public static boolean isPinned() {
+        return PINNED.get() != null;
+    }
+
+    /**
+     * Runs {@code action} pinned to the primary and restores the previous pinning afterwards.
+     */
+    public static <T> T onPrimary(Supplier<T> action) {
+        Boolean previous = PINNED.get();
+        PINNED.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                PINNED.remove();
+            }
+        }
+    }
+
+    /**
+     * Wraps {@code task} to run pinned to the primary if the calling thread is pinned, for work handed over to
+     * another thread such as a streamed response body.
+     */
+    public static Runnable propagatePinning(Runnable task) {
+        if (!isPinned()) {
+            return task;
+        }
+        return () -> onPrimary(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+
+        if (!isPinned() && !replicas.isEmpty()) {
+            int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+            for (int i = 0; i < replicas.size(); i++) {
+                Replica replica = replicas.get((start + i) % replicas.size());
+                if (!replica.isHealthy()) {
+                    continue;
+                }
+                try {
+                    Connection connection = replica.pool.getConnection();
+                    replica.reads.increment();
+                    return connection;
+                } catch (SQLException e) {
+                    markDown(replica, e);
+                }
+            }
+        }
+
+        primaryReads.increment();
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        // Replica pools only hold the configured credentials
+        primaryReads.increment();
+        return primary.getConnection(username, password);
+    }
+
+    @Override
+    public void close() {
+        healthChecker.shutdownNow();
+        replicas.forEach(replica -> replica.pool.close());
+    }
+
+    private void checkHealth() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.pool.getConnection()) {
+                if (!connection.isValid((int) Math.max(1, healthTimeout.toSeconds()))) {
+                    throw new SQLException("Connection is not valid");
+                }
+                if (!replica.isHealthy()) {
+                    log.info("Read replica {} is healthy", replica.pool.getPoolName());
+                    replica.healthy = Boolean.TRUE;
+                }
+            } catch (SQLException | RuntimeException e) {
+                markDown(replica, e);
+            }
+        }
+    }
+
+    private static void markDown(Replica replica, Exception cause) {
+        if (!Boolean.FALSE.equals(replica.healthy)) {
+            log.warn("Read replica {} is down, reading from the other replicas or the primary: {}",
+                    replica.pool.getPoolName(), cause.getMessage());
+            replica.healthy = Boolean.FALSE;
+        }
+    }
+
+    private static final class Replica {
+
+        private final HikariDataSource pool;
+
+        private final Counter reads;
+
+        // Unknown until the first health check, and left out of the rotation until one passes
+        private volatile Boolean healthy;
+
+        private Replica(HikariDataSource pool, Counter reads) {
+            this.pool = pool;
+            this.reads = reads;
+        }
+
+        boolean isHealthy() {
+            return Boolean.TRUE.equals(healthy);
+        }
+    }
+}
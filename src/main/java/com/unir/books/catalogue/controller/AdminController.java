@@ -0,0 +1,48 @@
+package com.unir.books.catalogue.controller;
+
+import com.unir.books.catalogue.data.snapshot.SnapshotInfo;
+import com.unir.books.catalogue.service.BooksCatalogueService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+@RestController
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Admin Controller", description = "Operaciones de administracion del catalogo.")
+public class AdminController {
+
+    private final BooksCatalogueService service;
+
+    @PostMapping("/admin/snapshot")
+    @Operation(
+            operationId = "Crear snapshot del catalogo",
+            description = "Operacion de administracion",
+            summary = "Se guardan todos los libros en un fichero binario que se carga al arrancar nuevas instancias.")
+    @ApiResponse(
+            responseCode = "201",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = SnapshotInfo.class)))
+    @ApiResponse(
+            responseCode = "500",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = Void.class)),
+            description = "No se ha podido escribir el snapshot.")
+    public ResponseEntity<SnapshotInfo> createSnapshot() {
+
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED).body(service.createSnapshot());
+        } catch (IOException e) {
+            log.error("Snapshot could not be written", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+}
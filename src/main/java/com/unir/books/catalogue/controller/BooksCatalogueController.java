@@ -1,9 +1,30 @@
 package com.unir.books.catalogue.controller;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.unir.books.catalogue.controller.model.BookChangesPage;
 import com.unir.books.catalogue.controller.model.BookDto;
+import com.unir.books.catalogue.controller.model.BooksPage;
+import com.unir.books.catalogue.controller.model.BulkCreateResponse;
 import com.unir.books.catalogue.controller.model.CreateBookRequest;
+import com.unir.books.catalogue.controller.model.FacetsResponse;
+import com.unir.books.catalogue.controller.model.MultiGetRequest;
+import com.unir.books.catalogue.controller.model.MultiGetResponse;
+import com.unir.books.catalogue.controller.model.RankedBook;
+import com.unir.books.catalogue.controller.model.StockItem;
+import com.unir.books.catalogue.controller.model.StockRequest;
+import com.unir.books.catalogue.controller.model.StockResponse;
+import com.unir.books.catalogue.data.cache.BookPayloadCache;
+import com.unir.books.catalogue.data.index.Suggestion;
 import com.unir.books.catalogue.data.model.Book;
+import com.unir.books.catalogue.data.utils.BookFilter;
+import com.unir.books.catalogue.data.utils.Constants;
+import com.unir.books.catalogue.service.BookChangeFeed;
+import com.unir.books.catalogue.service.BookVersionMismatchException;
 import com.unir.books.catalogue.service.BooksCatalogueService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -12,14 +33,36 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @RestController
 @RequiredArgsConstructor
@@ -27,8 +70,56 @@ import java.util.Map;
 @Tag(name = "Books Controller", description = "Microservicio encargado de exponer operaciones CRUD sobre el catalogo de libros.")
 public class BooksCatalogueController {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private static final String SUMMARY_VIEW = "summary";
+
+    private static final int MAX_PRICE_BANDS = 20;
+
+    // Typical size of a book in JSON, to size list buffers
+    private static final int ESTIMATED_BOOK_SIZE = 256;
+
+    // Part of the catalogue ETag, since generations are only comparable within one instance and one run
+    private static final String INSTANCE_EPOCH = Long.toString(System.currentTimeMillis(), 36);
+
+    // ETags are weak: one validator covers the identity, gzip and CBOR encodings of a response, and Tomcat does not
+    // compress responses carrying a strong one
+    private static final String WEAK_ETAG_PREFIX = "W/";
+
+    // An If-Match list of entity tags, and each tag in it
+    private static final Pattern ENTITY_TAGS = Pattern.compile(
+            "\\s*(W/)?\"[\\x21\\x23-\\x7E]*\"\\s*(,\\s*(W/)?\"[\\x21\\x23-\\x7E]*\"\\s*)*");
+
+    private static final Pattern ENTITY_TAG = Pattern.compile("\"([^\"]*)\"");
+
     private final BooksCatalogueService service;
 
+    private final ObjectMapper objectMapper;
+
+    private final MeterRegistry meterRegistry;
+
+    private final BookChangeFeed changeFeed;
+
+    private final BookPayloadCache payloadCache;
+
+    @Value("${catalogue.books.max-page-size:1000}")
+    private int maxPageSize;
+
+    @Value("${catalogue.books.max-mget-size:1000}")
+    private int maxMultiGetSize;
+
+    @Value("${catalogue.suggest.max-results:10}")
+    private int maxSuggestions;
+
+    @Value("${catalogue.facets.price-bands:10,20,30,50}")
+    private List<Double> defaultPriceBands;
+
+    @Value("${catalogue.changes.max-batch:1000}")
+    private int maxChangesBatch;
+
+    @Value("${catalogue.changes.max-wait:30s}")
+    private Duration maxChangesWait;
+
     @GetMapping("/books")
     @Operation(
             operationId = "Obtener lista de libros",
@@ -36,9 +127,20 @@ public class BooksCatalogueController {
             summary = "Se devuelve una lista de todos los libros almacenados en la base de datos.")
     @ApiResponse(
             responseCode = "200",
-            content = @Content(mediaType = "application/json", schema = @Schema(implementation = Book.class)))
-    public ResponseEntity<List<Book>> getBooks(
+            content = {
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = Book.class)),
+                    @Content(mediaType = "application/cbor", schema = @Schema(implementation = Book.class))})
+    @ApiResponse(
+            responseCode = "400",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = Void.class)),
+            description = "Tamano de pagina, vista o campos no validos.")
+    @ApiResponse(
+            responseCode = "304",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = Void.class)),
+            description = "El catalogo no ha cambiado desde la version indicada en If-None-Match o If-Modified-Since.")
+    public ResponseEntity<?> getBooks(
             @RequestHeader Map<String, String> headers,
+            WebRequest webRequest,
             @Parameter(name = "title", description = "Titulo del libro. No debe ser exacto", example = "Harry Potter", required = false)
             @RequestParam(required = false) String title,
             @Parameter(name = "author", description = "Autor del libro. No debe ser exacto", example = "J. K. Rowling", required = false)
@@ -47,25 +149,293 @@ public class BooksCatalogueController {
             @RequestParam(required = false) String category,
             @Parameter(name = "isbn", description = "Codigo Internacional Normalizado para libros. Debe ser exacto para mostrar coincidencias", example = "978-84-08-18123-4", required = false)
             @RequestParam(required = false) String isbn,
-            @Parameter(name = "publishedDate", description = "Fecha de publicacion del libro. Muestra los libros con fecha de publicacion mayor o actual a la fecha indicada", example = "Harry Potter", required = false)
-            @RequestParam(required = false) Date publishedDate,
+            @Parameter(name = "publishedDate", description = "Fecha de publicacion del libro. Muestra los libros con fecha de publicacion mayor o actual a la fecha indicada", example = "2000-01-01", required = false)
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date publishedDate,
             @Parameter(name = "price", description = "Precio de venta del libro. Debe ser el valor exacto", example = "25.50", required = false)
             @RequestParam(required = false) Double price,
+            @Parameter(name = "minPrice", description = "Precio minimo de venta del libro, incluido", example = "10.00", required = false)
+            @RequestParam(required = false) Double minPrice,
+            @Parameter(name = "maxPrice", description = "Precio maximo de venta del libro, incluido", example = "30.00", required = false)
+            @RequestParam(required = false) Double maxPrice,
             @Parameter(name = "rating", description = "Valoracion del libro en una escala de 1 a 5. Muestra los libros cuya valoracion es igual o mayor al valor indicado", example = "3", required = false)
             @RequestParam(required = false) Integer rating,
+            @Parameter(name = "maxRating", description = "Valoracion maxima del libro en una escala de 1 a 5, incluida. Junto con 'rating' permite filtrar por un rango de valoraciones", example = "4", required = false)
+            @RequestParam(required = false) Integer maxRating,
             @Parameter(name = "visible", description = "Estado del libro, que permite saber si se muestra o no en pantalla", example = "true", required = false)
-            @RequestParam(required = false) Boolean visible) {
+            @RequestParam(required = false) Boolean visible,
+            @Parameter(name = "limit", description = "Numero maximo de libros a devolver. Si se indica, la respuesta se pagina por cursor y la cabecera X-Next-Cursor contiene el valor de 'after' para la siguiente pagina", example = "50", required = false)
+            @RequestParam(required = false) Integer limit,
+            @Parameter(name = "after", description = "Cursor de paginacion. Se devuelven los libros con identificador mayor al indicado", example = "100", required = false)
+            @RequestParam(required = false) Long after,
+            @Parameter(name = "view", description = "Vista de la respuesta. Con 'summary' se devuelven solo id, titulo, autor, precio y valoracion", example = "summary", required = false)
+            @RequestParam(required = false) String view,
+            @Parameter(name = "fields", description = "Campos a devolver de cada libro, separados por comas. El identificador se incluye siempre", example = "title,price", required = false)
+            @RequestParam(required = false) List<String> fields) {
+
+        log.debug("headers: {}", headers);
+
+        if (limit != null && (limit < 1 || limit > maxPageSize)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        // Read before searching: a write racing with the search bumps the generation again once committed
+        String etag = catalogueEtag();
+        if (webRequest.checkNotModified(etag, service.getCatalogueLastModified())) {
+            return null;
+        }
+
+        BookFilter filter = BookFilter.builder()
+                .title(title).author(author).category(category).isbn(isbn).publishedDate(publishedDate)
+                .price(price).minPrice(minPrice).maxPrice(maxPrice).rating(rating).maxRating(maxRating)
+                .visible(visible)
+                .build();
 
-        log.info("headers: {}", headers);
-        List<Book> books = service.getBooks(title, author, category, isbn, publishedDate, price, rating, visible);
+        if (fields != null && !fields.isEmpty()) {
+            if (view != null || !Constants.BOOK_FIELDS.containsAll(fields)) {
+                return ResponseEntity.badRequest().build();
+            }
+            return page(service.getBookFields(filter, fields, after, limit));
+        }
+
+        if (view != null) {
+            if (!SUMMARY_VIEW.equals(view)) {
+                return ResponseEntity.badRequest().build();
+            }
+            return page(service.getBookSummaries(filter, after, limit));
+        }
+
+        BookPayloadCache.Format format = negotiate(webRequest.getHeader(HttpHeaders.ACCEPT));
+        if (limit != null) {
+            BooksPage<Book> page = service.getBooksPage(filter, after, limit);
+            return books(page.getBooks(), page.getNextCursor(), format);
+        }
+
+        List<Book> books = service.getBooks(filter);
 
         if (books != null) {
-            return ResponseEntity.ok(books);
+            return books(books, null, format);
         } else {
             return ResponseEntity.ok(Collections.emptyList());
         }
     }
 
+    @GetMapping("/books/search")
+    @Operation(
+            operationId = "Buscar libros por relevancia",
+            description = "Operacion de lectura",
+            summary = "Se devuelven los libros mas relevantes para un texto libre buscado en titulo, autor y categoria, ordenados por puntuacion. Se ignoran mayusculas y tildes y se toleran pequenas erratas.")
+    @ApiResponse(
+            responseCode = "200",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = RankedBook.class)))
+    @ApiResponse(
+            responseCode = "400",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = Void.class)),
+            description = "Texto vacio o numero de resultados no valido.")
+    @ApiResponse(
+            responseCode = "503",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = Void.class)),
+            description = "El indice de busqueda aun se esta construyendo.")
+    public ResponseEntity<List<RankedBook>> searchBooks(
+            @Parameter(name = "q", description = "Texto a buscar", example = "garcia marques soledad", required = true)
+            @RequestParam String q,
+            @Parameter(name = "limit", description = "Numero maximo de libros a devolver", example = "10", required = false)
+            @RequestParam(defaultValue = "10") int limit) {
+
+        if (q.isBlank() || limit < 1 || limit > maxPageSize) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        List<RankedBook> books = service.searchRanked(q, limit);
+        if (books == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        rowsSerialized("searchBooks").increment(books.size());
+        return ResponseEntity.ok(books);
+    }
+
+    @GetMapping("/books/suggest")
+    @Operation(
+            operationId = "Sugerir libros y autores",
+            description = "Operacion de lectura",
+            summary = "Se devuelven los titulos y autores que completan el texto escrito, ordenados por valoracion. Solo incluye libros visibles y devuelve identificador y etiqueta, pensado para el autocompletado del buscador.")
+    @ApiResponse(
+            responseCode = "200",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = Suggestion.class)))
+    @ApiResponse(
+            responseCode = "400",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = Void.class)),
+            description = "Texto vacio o numero de sugerencias no valido.")
+    @ApiResponse(
+            responseCode = "503",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = Void.class)),
+            description = "El indice de sugerencias aun se esta construyendo.")
+    public ResponseEntity<List<Suggestion>> suggest(
+            @Parameter(name = "prefix", description = "Comienzo de cualquier palabra del titulo o del autor", example = "cien a", required = true)
+            @RequestParam String prefix,
+            @Parameter(name = "limit", description = "Numero maximo de sugerencias", example = "10", required = false)
+            @RequestParam(defaultValue = "10") int limit) {
+
+        if (prefix.isBlank() || limit < 1 || limit > maxSuggestions) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        List<Suggestion> suggestions = service.suggest(prefix, limit);
+        if (suggestions == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(suggestions);
+    }
+
+    @GetMapping("/books/facets")
+    @Operation(
+            operationId = "Obtener facetas del catalogo",
+            description = "Operacion de lectura",
+            summary = "Se devuelve el numero de libros que cumplen los filtros por categoria, valoracion, visibilidad y rango de precio.")
+    @ApiResponse(
+            responseCode = "200",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = FacetsResponse.class)))
+    @ApiResponse(
+            responseCode = "400",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = Void.class)),
+            description = "Rangos de precio no validos.")
+    @ApiResponse(
+            responseCode = "304",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = Void.class)),
+            description = "El catalogo no ha cambiado desde la version indicada en If-None-Match o If-Modified-Since.")
+    public ResponseEntity<FacetsResponse> getFacets(
+            WebRequest webRequest,
+            @Parameter(name = "title", description = "Titulo del libro. No debe ser exacto", example = "Harry Potter", required = false)
+            @RequestParam(required = false) String title,
+            @Parameter(name = "author", description = "Autor del libro. No debe ser exacto", example = "J. K. Rowling", required = false)
+            @RequestParam(required = false) String author,
+            @Parameter(name = "category", description = "Categoria en la que se clasifica el libro. Debe ser exacto para mostrar coincidencias", example = "Ciencia Ficcion", required = false)
+            @RequestParam(required = false) String category,
+            @Parameter(name = "isbn", description = "Codigo Internacional Normalizado para libros. Debe ser exacto para mostrar coincidencias", example = "978-84-08-18123-4", required = false)
+            @RequestParam(required = false) String isbn,
+            @Parameter(name = "publishedDate", description = "Fecha de publicacion del libro. Muestra los libros con fecha de publicacion mayor o actual a la fecha indicada", example = "2000-01-01", required = false)
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date publishedDate,
+            @Parameter(name = "price", description = "Precio de venta del libro. Debe ser el valor exacto", example = "25.50", required = false)
+            @RequestParam(required = false) Double price,
+            @Parameter(name = "minPrice", description = "Precio minimo de venta del libro, incluido", example = "10.00", required = false)
+            @RequestParam(required = false) Double minPrice,
+            @Parameter(name = "maxPrice", description = "Precio maximo de venta del libro, incluido", example = "30.00", required = false)
+            @RequestParam(required = false) Double maxPrice,
+            @Parameter(name = "rating", description = "Valoracion del libro en una escala de 1 a 5. Muestra los libros cuya valoracion es igual o mayor al valor indicado", example = "3", required = false)
+            @RequestParam(required = false) Integer rating,
+            @Parameter(name = "maxRating", description = "Valoracion maxima del libro en una escala de 1 a 5, incluida", example = "4", required = false)
+            @RequestParam(required = false) Integer maxRating,
+            @Parameter(name = "visible", description = "Estado del libro, que permite saber si se muestra o no en pantalla", example = "true", required = false)
+            @RequestParam(required = false) Boolean visible,
+            @Parameter(name = "priceBands", description = "Limites de los rangos de precio, en orden creciente y separados por comas. Si no se indican se usan los configurados", example = "10,20,50", required = false)
+            @RequestParam(required = false) List<Double> priceBands) {
+
+        List<Double> bands = priceBands == null || priceBands.isEmpty() ? defaultPriceBands : priceBands;
+        if (bands.size() > MAX_PRICE_BANDS) {
+            return ResponseEntity.badRequest().build();
+        }
+        for (int i = 0; i < bands.size(); i++) {
+            Double bound = bands.get(i);
+            if (bound == null || !Double.isFinite(bound) || bound <= 0 || (i > 0 && bound <= bands.get(i - 1))) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+
+        String etag = catalogueEtag();
+        if (webRequest.checkNotModified(etag, service.getCatalogueLastModified())) {
+            return null;
+        }
+
+        BookFilter filter = BookFilter.builder()
+                .title(title).author(author).category(category).isbn(isbn).publishedDate(publishedDate)
+                .price(price).minPrice(minPrice).maxPrice(maxPrice).rating(rating).maxRating(maxRating)
+                .visible(visible)
+                .build();
+
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(service.getFacets(filter, bands));
+    }
+
+    @GetMapping(value = "/books", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(
+            operationId = "Exportar lista de libros en streaming",
+            description = "Operacion de lectura",
+            summary = "Se devuelven los libros en formato NDJSON (un libro por linea) a medida que se leen de la base de datos.")
+    @ApiResponse(
+            responseCode = "200",
+            content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE, schema = @Schema(implementation = Book.class)))
+    public ResponseEntity<StreamingResponseBody> streamBooks(
+            @RequestParam(required = false) String title,
+            @RequestParam(required = false) String author,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String isbn,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date publishedDate,
+            @RequestParam(required = false) Double price,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(required = false) Integer rating,
+            @RequestParam(required = false) Integer maxRating,
+            @RequestParam(required = false) Boolean visible) {
+
+        BookFilter filter = BookFilter.builder()
+                .title(title).author(author).category(category).isbn(isbn).publishedDate(publishedDate)
+                .price(price).minPrice(minPrice).maxPrice(maxPrice).rating(rating).maxRating(maxRating)
+                .visible(visible)
+                .build();
+
+        Counter rows = rowsSerialized("streamBooks");
+        StreamingResponseBody body = outputStream -> {
+            try (SequenceWriter writer = objectMapper.writer().withRootValueSeparator("\n").writeValues(outputStream)) {
+                service.streamBooks(filter, book -> {
+                    try {
+                        writer.write(book);
+                        rows.increment();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    @GetMapping("/books/changes")
+    @Operation(
+            operationId = "Obtener cambios del catalogo",
+            description = "Operacion de lectura",
+            summary = "Se devuelven en orden los cambios confirmados sobre los libros a partir de un offset. Si no hay cambios, la peticion espera hasta 'wait' segundos a que se produzca alguno.")
+    @ApiResponse(
+            responseCode = "200",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = BookChangesPage.class)))
+    @ApiResponse(
+            responseCode = "400",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = Void.class)),
+            description = "Offset, tamano de lote o tiempo de espera no validos.")
+    @ApiResponse(
+            responseCode = "410",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = Void.class)),
+            description = "Los cambios posteriores al offset indicado ya no se conservan. Se debe recargar el catalogo.")
+    public CompletableFuture<ResponseEntity<BookChangesPage>> getChanges(
+            @Parameter(name = "after", description = "Offset del ultimo cambio procesado. Se devuelven los cambios posteriores", example = "0", required = false)
+            @RequestParam(defaultValue = "0") long after,
+            @Parameter(name = "limit", description = "Numero maximo de cambios a devolver", example = "100", required = false)
+            @RequestParam(defaultValue = "100") int limit,
+            @Parameter(name = "wait", description = "Segundos que se espera a que haya cambios si no hay ninguno", example = "25", required = false)
+            @RequestParam(defaultValue = "0") int wait) {
+
+        if (after < 0 || limit < 1 || limit > maxChangesBatch || wait < 0 || wait > maxChangesWait.toSeconds()) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        }
+
+        CompletableFuture<BookChangesPage> changes = changeFeed.poll(after, limit, Duration.ofSeconds(wait));
+        if (changes == null) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.GONE).build());
+        }
+        return changes.thenApply(page -> {
+            rowsSerialized("getChanges").increment(page.getChanges().size());
+            return ResponseEntity.ok(page);
+        });
+    }
+
     @GetMapping("/books/{bookId}")
     @Operation(
             operationId = "Obtener un libro dado su ID",
@@ -73,24 +443,76 @@ public class BooksCatalogueController {
             summary = "Se devuelve un libro a partir de su identificador.")
     @ApiResponse(
             responseCode = "200",
-            content = @Content(mediaType = "application/json", schema = @Schema(implementation = Book.class)))
+            content = {
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = Book.class)),
+                    @Content(mediaType = "application/cbor", schema = @Schema(implementation = Book.class))})
     @ApiResponse(
             responseCode = "404",
             content = @Content(mediaType = "application/json", schema = @Schema(implementation = Void.class)),
             description = "No se ha encontrado el libro con el identificador indicado.")
-    public ResponseEntity<Book> getBook(@PathVariable String bookId) {
+    @ApiResponse(
+            responseCode = "304",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = Void.class)),
+            description = "El libro no ha cambiado desde la version indicada en If-None-Match o If-Modified-Since.")
+    public ResponseEntity<byte[]> getBook(@PathVariable String bookId, WebRequest webRequest) {
 
         log.info("Request received for book {}", bookId);
         Book book = service.getBook(bookId);
 
         if (book != null) {
-            return ResponseEntity.ok(book);
+            long lastModified = book.getLastModified() != null ? book.getLastModified().getTime() : -1;
+            if (webRequest.checkNotModified(WEAK_ETAG_PREFIX + "\"" + book.getVersion() + "\"", lastModified)) {
+                return null;
+            }
+            rowsSerialized("getBook").increment();
+
+            BookPayloadCache.Format format = negotiate(webRequest.getHeader(HttpHeaders.ACCEPT));
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                    .cacheControl(CacheControl.noCache())
+                    .contentType(format.getMediaType())
+                    .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+            if (format == BookPayloadCache.Format.JSON
+                    && acceptsGzip(webRequest.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+                byte[] gzip = payloadCache.gzip(book);
+                if (gzip != null) {
+                    return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(gzip);
+                }
+            }
+            return response.body(payloadCache.encode(book, format));
         } else {
             return ResponseEntity.notFound().build();
         }
 
     }
 
+    @PostMapping("/books/_mget")
+    @Operation(
+            operationId = "Obtener varios libros dados sus IDs",
+            description = "Operacion de lectura",
+            summary = "Se devuelven en una sola llamada los libros encontrados y los identificadores que no existen.",
+            requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    description = "Identificadores de los libros",
+                    required = true,
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = MultiGetRequest.class))))
+    @ApiResponse(
+            responseCode = "200",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = MultiGetResponse.class)))
+    @ApiResponse(
+            responseCode = "400",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = Void.class)),
+            description = "Lista de identificadores vacia o demasiado grande.")
+    public ResponseEntity<MultiGetResponse> getBooksById(@RequestBody MultiGetRequest request) {
+
+        if (request.getIds() == null || request.getIds().isEmpty() || request.getIds().size() > maxMultiGetSize
+                || request.getIds().contains(null)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        MultiGetResponse response = service.getBooks(request.getIds());
+        rowsSerialized("getBooksById").increment(response.getBooks().size());
+        return ResponseEntity.ok(response);
+    }
+
     @DeleteMapping("/books/{bookId}")
     @Operation(
             operationId = "Eliminar un libro dado su ID",
@@ -146,6 +568,25 @@ public class BooksCatalogueController {
         }
     }
 
+    @PostMapping(value = "/books/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @Operation(
+            operationId = "Insertar libros de forma masiva",
+            description = "Operacion de escritura",
+            summary = "Se crean los libros de un array JSON o de un flujo NDJSON. Se leen en streaming y se insertan por bloques.",
+            requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    description = "Array JSON o NDJSON de libros a crear",
+                    required = true,
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = CreateBookRequest.class))))
+    @ApiResponse(
+            responseCode = "200",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = BulkCreateResponse.class)),
+            description = "Resultado de cada elemento, en el mismo orden del cuerpo de la peticion.")
+    public ResponseEntity<BulkCreateResponse> addBooks(InputStream body) throws IOException {
+
+        try (MappingIterator<CreateBookRequest> requests = objectMapper.readerFor(CreateBookRequest.class).readValues(body)) {
+            return ResponseEntity.ok(service.createBooks(requests));
+        }
+    }
 
     @PatchMapping("/books/{bookId}")
     @Operation(
@@ -162,10 +603,27 @@ public class BooksCatalogueController {
     @ApiResponse(
             responseCode = "400",
             content = @Content(mediaType = "application/json", schema = @Schema(implementation = Void.class)),
-            description = "Libro invalido o datos incorrectos introducidos.")
-    public ResponseEntity<Book> patchBook(@PathVariable String bookId, @RequestBody String patchBody) {
+            description = "Libro invalido, datos incorrectos introducidos o cabecera If-Match mal formada.")
+    @ApiResponse(
+            responseCode = "409",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = Void.class)),
+            description = "El libro se ha modificado a la vez que se aplicaba el cambio.")
+    @ApiResponse(
+            responseCode = "412",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = Void.class)),
+            description = "El libro ya no tiene ninguna de las versiones indicadas en If-Match.")
+    public ResponseEntity<Book> patchBook(@PathVariable String bookId, @RequestBody String patchBody,
+                                          @Parameter(description = "ETag del libro sobre el que se aplica el cambio")
+                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+
+        Set<Long> versions;
+        try {
+            versions = expectedVersions(ifMatch);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
 
-        Book patched = service.updateBook(bookId, patchBody);
+        Book patched = service.updateBook(bookId, patchBody, versions);
         if (patched != null) {
             return ResponseEntity.ok(patched);
         } else {
@@ -186,13 +644,34 @@ public class BooksCatalogueController {
     @ApiResponse(
             responseCode = "200",
             content = @Content(mediaType = "application/json", schema = @Schema(implementation = Book.class)))
+    @ApiResponse(
+            responseCode = "400",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = Void.class)),
+            description = "Cabecera If-Match mal formada.")
     @ApiResponse(
             responseCode = "404",
             content = @Content(mediaType = "application/json", schema = @Schema(implementation = Void.class)),
             description = "Libro no encontrado")
-    public ResponseEntity<Book> updateBook(@PathVariable String bookId, @RequestBody BookDto body) {
+    @ApiResponse(
+            responseCode = "409",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = Void.class)),
+            description = "El libro se ha modificado a la vez que se aplicaba el cambio.")
+    @ApiResponse(
+            responseCode = "412",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = Void.class)),
+            description = "El libro ya no tiene ninguna de las versiones indicadas en If-Match.")
+    public ResponseEntity<Book> updateBook(@PathVariable String bookId, @RequestBody BookDto body,
+                                           @Parameter(description = "ETag del libro sobre el que se aplica el cambio")
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
 
-        Book updatedBook = service.updateBook(bookId, body);
+        Set<Long> versions;
+        try {
+            versions = expectedVersions(ifMatch);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        Book updatedBook = service.updateBook(bookId, body, versions);
         if (updatedBook != null) {
             return ResponseEntity.ok(updatedBook);
         } else {
@@ -200,4 +679,225 @@ public class BooksCatalogueController {
         }
     }
 
+    @PostMapping("/books/stock/reserve")
+    @Operation(
+            operationId = "Reservar stock de varios libros",
+            description = "Operacion de escritura",
+            summary = "Se descuenta de forma atomica el stock de cada libro indicado. Con allOrNothing no se aplica ningun cambio si algun elemento falla.",
+            requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    description = "Libros y unidades a reservar. La version es opcional.",
+                    required = true,
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = StockRequest.class))))
+    @ApiResponse(
+            responseCode = "200",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = StockResponse.class)))
+    @ApiResponse(
+            responseCode = "409",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = StockResponse.class)),
+            description = "Algun elemento no se ha podido reservar. Se indica el motivo de cada uno.")
+    public ResponseEntity<StockResponse> reserveStock(@RequestBody StockRequest request) {
+        return changeStock(request, service::reserveStock);
+    }
+
+    @PostMapping("/books/stock/release")
+    @Operation(
+            operationId = "Liberar stock de varios libros",
+            description = "Operacion de escritura",
+            summary = "Se devuelve de forma atomica al stock de cada libro las unidades indicadas.",
+            requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    description = "Libros y unidades a liberar. La version es opcional.",
+                    required = true,
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = StockRequest.class))))
+    @ApiResponse(
+            responseCode = "200",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = StockResponse.class)))
+    @ApiResponse(
+            responseCode = "409",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = StockResponse.class)),
+            description = "Algun elemento no se ha podido liberar. Se indica el motivo de cada uno.")
+    public ResponseEntity<StockResponse> releaseStock(@RequestBody StockRequest request) {
+        return changeStock(request, service::releaseStock);
+    }
+
+    @PostMapping("/books/{bookId}/stock/reserve")
+    @Operation(
+            operationId = "Reservar stock de un libro",
+            description = "Operacion de escritura",
+            summary = "Se descuenta de forma atomica el stock de un libro.",
+            requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    description = "Unidades a reservar. La version es opcional.",
+                    required = true,
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = StockItem.class))))
+    @ApiResponse(
+            responseCode = "200",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = StockResponse.class)))
+    @ApiResponse(
+            responseCode = "409",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = StockResponse.class)),
+            description = "No se ha podido reservar. Se indica el motivo.")
+    public ResponseEntity<StockResponse> reserveBookStock(@PathVariable Long bookId, @RequestBody StockItem item) {
+        item.setBookId(bookId);
+        return changeStock(new StockRequest(List.of(item), true), service::reserveStock);
+    }
+
+    @PostMapping("/books/{bookId}/stock/release")
+    @Operation(
+            operationId = "Liberar stock de un libro",
+            description = "Operacion de escritura",
+            summary = "Se devuelven de forma atomica unidades al stock de un libro.",
+            requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    description = "Unidades a liberar. La version es opcional.",
+                    required = true,
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = StockItem.class))))
+    @ApiResponse(
+            responseCode = "200",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = StockResponse.class)))
+    @ApiResponse(
+            responseCode = "409",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = StockResponse.class)),
+            description = "No se ha podido liberar. Se indica el motivo.")
+    public ResponseEntity<StockResponse> releaseBookStock(@PathVariable Long bookId, @RequestBody StockItem item) {
+        item.setBookId(bookId);
+        return changeStock(new StockRequest(List.of(item), true), service::releaseStock);
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Void> handleConcurrentModification(OptimisticLockingFailureException e) {
+        log.info("Concurrent modification rejected: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
+
+    @ExceptionHandler(BookVersionMismatchException.class)
+    public ResponseEntity<Void> handleFailedPrecondition(BookVersionMismatchException e) {
+        log.info("Conditional update rejected: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+    }
+
+    private ResponseEntity<List<?>> page(BooksPage<?> page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().cacheControl(CacheControl.noCache());
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor().toString());
+        }
+        rowsSerialized("getBooks").increment(page.getBooks().size());
+        return response.body(page.getBooks());
+    }
+
+    /**
+     * Full books as an array, copied from their cached encodings instead of serialized again. The books are already
+     * in memory, so the array is buffered and sent with its length.
+     */
+    private ResponseEntity<byte[]> books(List<Book> books, Long nextCursor, BookPayloadCache.Format format) {
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream(books.size() * ESTIMATED_BOOK_SIZE + 2);
+        try {
+            payloadCache.writeArray(books, format, body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .contentType(format.getMediaType())
+                .varyBy(HttpHeaders.ACCEPT);
+        if (nextCursor != null) {
+            response.header(NEXT_CURSOR_HEADER, nextCursor.toString());
+        }
+        rowsSerialized("getBooks").increment(books.size());
+        return response.body(body.toByteArray());
+    }
+
+    /**
+     * CBOR when the client ranks it above JSON, as internal services calling with {@code Accept: application/cbor}
+     * do; JSON otherwise.
+     */
+    private static BookPayloadCache.Format negotiate(String accept) {
+        if (accept == null) {
+            return BookPayloadCache.Format.JSON;
+        }
+
+        List<MediaType> types;
+        try {
+            types = new ArrayList<>(MediaType.parseMediaTypes(accept));
+        } catch (InvalidMediaTypeException e) {
+            return BookPayloadCache.Format.JSON;
+        }
+        types.sort(Comparator.comparingDouble(MediaType::getQualityValue).reversed());
+        for (MediaType type : types) {
+            if (type.includes(MediaType.APPLICATION_JSON)) {
+                return BookPayloadCache.Format.JSON;
+            }
+            if (type.includes(MediaType.APPLICATION_CBOR)) {
+                return BookPayloadCache.Format.CBOR;
+            }
+        }
+        return BookPayloadCache.Format.JSON;
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length == 1 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The book versions named by an {@code If-Match} header, or {@code null} when it is absent or {@code *}. Book
+     * ETags are the version; tags that are not one can never match and are left out. Book ETags are weak, since
+     * JSON and CBOR share them, so weak tags are compared by version too instead of never matching. Throws
+     * {@link IllegalArgumentException} if the header is not a list of entity tags.
+     */
+    private static Set<Long> expectedVersions(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        if (!ENTITY_TAGS.matcher(ifMatch).matches()) {
+            throw new IllegalArgumentException("Malformed If-Match header: " + ifMatch);
+        }
+
+        Set<Long> versions = new HashSet<>();
+        Matcher tag = ENTITY_TAG.matcher(ifMatch);
+        while (tag.find()) {
+            try {
+                versions.add(Long.valueOf(tag.group(1)));
+            } catch (NumberFormatException e) {
+                // Not an ETag of this service
+            }
+        }
+        return versions;
+    }
+
+    /**
+     * Validator of every response computed from the whole catalogue, changing with each write.
+     */
+    private String catalogueEtag() {
+        return WEAK_ETAG_PREFIX + "\"" + INSTANCE_EPOCH + "-" + service.getCatalogueGeneration() + "\"";
+    }
+
+    private Counter rowsSerialized(String endpoint) {
+        return Counter.builder("books.rows.serialized")
+                .description("Books written to response bodies")
+                .tag("endpoint", endpoint)
+                .register(meterRegistry);
+    }
+
+    private ResponseEntity<StockResponse> changeStock(StockRequest request, Function<StockRequest, StockResponse> operation) {
+
+        if (request.getItems() == null || request.getItems().isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        StockResponse response = operation.apply(request);
+        if (response.isSuccess()) {
+            return ResponseEntity.ok(response);
+        } else {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        }
+    }
+
 }
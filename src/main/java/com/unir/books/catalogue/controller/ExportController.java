@@ -0,0 +1,151 @@
+package com.unir.books.catalogue.controller;
+
+import com.unir.books.catalogue.controller.model.ExportFormat;
+import com.unir.books.catalogue.controller.model.ExportJob;
+import com.unir.books.catalogue.controller.model.ExportStatus;
+import com.unir.books.catalogue.service.BookExportJobs;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+@RestController
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Export Controller", description = "Exportaciones asincronas del catalogo completo.")
+public class ExportController {
+
+    // Request attributes through which Tomcat sends a file straight from the page cache to the socket
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final MediaType GZIP = MediaType.parseMediaType("application/gzip");
+
+    private final BookExportJobs exportJobs;
+
+    @PostMapping("/books/exports")
+    @Operation(
+            operationId = "Iniciar exportacion del catalogo",
+            description = "Operacion de lectura",
+            summary = "Se inicia en segundo plano la exportacion de todos los libros a un fichero comprimido con gzip. La cabecera Location indica donde consultar su estado.")
+    @ApiResponse(
+            responseCode = "202",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ExportJob.class)))
+    @ApiResponse(
+            responseCode = "400",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = Void.class)),
+            description = "Formato no valido.")
+    @ApiResponse(
+            responseCode = "429",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = Void.class)),
+            description = "Hay demasiadas exportaciones en curso. Se debe reintentar mas tarde.")
+    public ResponseEntity<ExportJob> startExport(
+            @Parameter(name = "format", description = "Formato del fichero: csv o ndjson", example = "csv", required = false)
+            @RequestParam(defaultValue = "csv") String format) {
+
+        ExportFormat exportFormat;
+        try {
+            exportFormat = ExportFormat.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        ExportJob job = exportJobs.start(exportFormat);
+        if (job == null) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+        }
+        return ResponseEntity.accepted().location(URI.create("/books/exports/" + job.getId())).body(job);
+    }
+
+    @GetMapping("/books/exports/{jobId}")
+    @Operation(
+            operationId = "Obtener estado de una exportacion",
+            description = "Operacion de lectura",
+            summary = "Se devuelve el estado de una exportacion y el numero de libros exportados hasta el momento.")
+    @ApiResponse(
+            responseCode = "200",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ExportJob.class)))
+    @ApiResponse(
+            responseCode = "404",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = Void.class)),
+            description = "No existe la exportacion o ya ha caducado.")
+    public ResponseEntity<ExportJob> getExport(@PathVariable String jobId) {
+
+        ExportJob job = exportJobs.get(jobId);
+        return job != null ? ResponseEntity.ok(job) : ResponseEntity.notFound().build();
+    }
+
+    @GetMapping("/books/exports/{jobId}/file")
+    @Operation(
+            operationId = "Descargar exportacion",
+            description = "Operacion de lectura",
+            summary = "Se descarga el fichero comprimido con gzip de una exportacion finalizada.")
+    @ApiResponse(
+            responseCode = "200",
+            content = @Content(mediaType = "application/gzip"))
+    @ApiResponse(
+            responseCode = "404",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = Void.class)),
+            description = "No existe la exportacion o ya ha caducado.")
+    @ApiResponse(
+            responseCode = "409",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = Void.class)),
+            description = "La exportacion no ha finalizado o ha fallado.")
+    public ResponseEntity<Resource> downloadExport(@PathVariable String jobId, HttpServletRequest request)
+            throws IOException {
+
+        ExportJob job = exportJobs.get(jobId);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (job.getStatus() != ExportStatus.COMPLETED) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+
+        Path file = job.getFile();
+        if (!Files.exists(file)) {
+            return ResponseEntity.notFound().build();
+        }
+        long size = Files.size(file);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(GZIP)
+                .contentLength(size)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(file.getFileName().toString()).build().toString());
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // No body is written; the connector transfers the file itself once the headers are sent
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, size);
+            return response.build();
+        }
+        return response.body(new FileSystemResource(file));
+    }
+}
@@ -0,0 +1,101 @@
+package com.unir.books.catalogue.controller;
+
+import com.unir.books.catalogue.controller.model.ReplicatedChange;
+import com.unir.books.catalogue.controller.model.ReplicationBatch;
+import com.unir.books.catalogue.controller.model.ReplicationStatus;
+import com.unir.books.catalogue.service.BookReplicationPublisher;
+import com.unir.books.catalogue.service.BookReplicationReceiver;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.TreeMap;
+
+@RestController
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Replication Controller", description = "Replicacion de cambios entre instancias del catalogo.")
+public class ReplicationController {
+
+    private final BookReplicationPublisher publisher;
+
+    private final BookReplicationReceiver receiver;
+
+    private final ApplicationAvailability availability;
+
+    @PostMapping("/internal/replication")
+    @Operation(
+            operationId = "Recibir cambios replicados",
+            description = "Operacion interna de escritura",
+            summary = "Se aplican los cambios de libros realizados en otra instancia, en orden y una sola vez cada uno.")
+    @ApiResponse(
+            responseCode = "204",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = Void.class)))
+    @ApiResponse(
+            responseCode = "404",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = Void.class)),
+            description = "La replicacion no esta habilitada en esta instancia.")
+    @ApiResponse(
+            responseCode = "409",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = Void.class)),
+            description = "Faltan cambios anteriores al lote. La cabecera X-Expected-Offset indica desde donde reenviarlos.")
+    @ApiResponse(
+            responseCode = "503",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = Void.class)),
+            description = "La instancia todavia esta arrancando. Se debe reintentar mas tarde.")
+    public ResponseEntity<Void> replicate(@RequestBody ReplicationBatch<ReplicatedChange> batch) {
+
+        if (!publisher.isEnabled()) {
+            return ResponseEntity.notFound().build();
+        }
+        // A static peer list may include this instance
+        if (batch.getOrigin().equals(publisher.getOrigin())) {
+            return ResponseEntity.noContent().build();
+        }
+        // The snapshot is restored after the server starts, and must not race with replicated writes
+        if (availability.getReadinessState() != ReadinessState.ACCEPTING_TRAFFIC) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+
+        Long expected = receiver.receive(batch);
+        if (expected != null) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .header(BookReplicationPublisher.EXPECTED_OFFSET_HEADER, expected.toString())
+                    .build();
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/internal/replication")
+    @Operation(
+            operationId = "Obtener estado de la replicacion",
+            description = "Operacion interna de lectura",
+            summary = "Se devuelve el ultimo cambio confirmado por cada instancia y el ultimo aplicado de cada origen.")
+    @ApiResponse(
+            responseCode = "200",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ReplicationStatus.class)))
+    @ApiResponse(
+            responseCode = "404",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = Void.class)),
+            description = "La replicacion no esta habilitada en esta instancia.")
+    public ResponseEntity<ReplicationStatus> getReplicationStatus() {
+
+        if (!publisher.isEnabled()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(new ReplicationStatus(publisher.getOrigin(), new TreeMap<>(publisher.getCursors()),
+                receiver.getApplied()));
+    }
+}
@@ -0,0 +1,20 @@
+package com.unir.books.catalogue.controller.model;
+
+import com.unir.books.catalogue.data.model.BookChange;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookChangesPage {
+
+    private List<BookChange> changes;
+    private Long nextOffset;
+
+}
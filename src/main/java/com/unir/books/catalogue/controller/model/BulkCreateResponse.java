@@ -0,0 +1,20 @@
+package com.unir.books.catalogue.controller.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkCreateResponse {
+
+    private int created;
+    private int failed;
+    private List<BulkItemResult> items;
+
+}
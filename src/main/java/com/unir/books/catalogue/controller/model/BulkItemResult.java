@@ -0,0 +1,19 @@
+package com.unir.books.catalogue.controller.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkItemResult {
+
+    private int index;
+    private Long id;
+    private BulkItemStatus status;
+    private String error;
+
+}
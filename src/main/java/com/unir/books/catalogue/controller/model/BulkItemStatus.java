@@ -0,0 +1,7 @@
+package com.unir.books.catalogue.controller.model;
+
+public enum BulkItemStatus {
+    CREATED,
+    INVALID,
+    FAILED,
+}
@@ -0,0 +1,6 @@
+package com.unir.books.catalogue.controller.model;
+
+public enum ExportFormat {
+    CSV,
+    NDJSON,
+}
@@ -0,0 +1,35 @@
+package com.unir.books.catalogue.controller.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.nio.file.Path;
+import java.util.Date;
+
+/**
+ * An export of the catalogue to a gzip-compressed file. It is updated by the thread running the export while
+ * clients poll it, hence the volatile fields.
+ */
+@Getter
+@Setter
+public class ExportJob {
+
+    private final String id;
+    private final ExportFormat format;
+    private final Date createdAt = new Date();
+    private volatile ExportStatus status = ExportStatus.PENDING;
+    private volatile long rows;
+    private volatile Long bytes;
+    private volatile Date completedAt;
+    private volatile String error;
+
+    @JsonIgnore
+    private volatile Path file;
+
+    public ExportJob(String id, ExportFormat format) {
+        this.id = id;
+        this.format = format;
+    }
+
+}
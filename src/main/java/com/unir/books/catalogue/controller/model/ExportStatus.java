@@ -0,0 +1,8 @@
+package com.unir.books.catalogue.controller.model;
+
+public enum ExportStatus {
+    PENDING,
+    RUNNING,
+    COMPLETED,
+    FAILED,
+}
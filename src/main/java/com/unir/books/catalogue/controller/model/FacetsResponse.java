@@ -0,0 +1,23 @@
+package com.unir.books.catalogue.controller.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+import java.util.Map;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class FacetsResponse {
+
+    private long total;
+    private Map<String, Long> category;
+    private Map<Integer, Long> rating;
+    private Map<Boolean, Long> visible;
+    private List<PriceBandCount> price;
+
+}
@@ -0,0 +1,18 @@
+package com.unir.books.catalogue.controller.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class MultiGetRequest {
+
+    private List<Long> ids;
+
+}
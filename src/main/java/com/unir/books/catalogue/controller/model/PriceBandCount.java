@@ -0,0 +1,21 @@
+package com.unir.books.catalogue.controller.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Books with a price in {@code [from, to)}. {@code from} is null for the first band and {@code to} for the last.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class PriceBandCount {
+
+    private Double from;
+    private Double to;
+    private long count;
+
+}
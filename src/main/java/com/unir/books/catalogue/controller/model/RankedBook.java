@@ -0,0 +1,18 @@
+package com.unir.books.catalogue.controller.model;
+
+import com.unir.books.catalogue.data.model.Book;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class RankedBook {
+
+    private double score;
+    private Book book;
+
+}
@@ -0,0 +1,25 @@
+package com.unir.books.catalogue.controller.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.unir.books.catalogue.data.event.BookChangeType;
+import com.unir.books.catalogue.data.model.Book;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * A change as read from a {@code BookChange} row of a peer; the fields repeating the book are not needed.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReplicatedChange {
+
+    private long offset;
+    private BookChangeType type;
+    private Book book;
+
+}
@@ -0,0 +1,35 @@
+package com.unir.books.catalogue.controller.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Changes logged by the {@code origin} instance with an offset in {@code (after, next]}, in offset order. The
+ * sender writes them as {@code BookChange} rows and the receiver reads them as {@link ReplicatedChange}s.
+ * <p>
+ * A {@code resync} batch is a page of the current books and tombstones of the origin instead, for a peer that
+ * missed changes already purged from its log: {@code after} and {@code next} are then book ids, and the last page
+ * carries in {@code head} the log offset the pages cover, which the receiver continues from.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReplicationBatch<T> {
+
+    private String origin;
+    private long after;
+    private long next;
+    private List<T> changes;
+    private boolean resync;
+    private Long head;
+
+    public ReplicationBatch(String origin, long after, long next, List<T> changes) {
+        this(origin, after, next, changes, false, null);
+    }
+
+}
@@ -0,0 +1,19 @@
+package com.unir.books.catalogue.controller.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * The last offset each peer acknowledged to this instance, and the last offset applied from each origin.
+ */
+@Getter
+@AllArgsConstructor
+public class ReplicationStatus {
+
+    private final String origin;
+    private final Map<String, Long> sent;
+    private final Map<String, Long> applied;
+
+}
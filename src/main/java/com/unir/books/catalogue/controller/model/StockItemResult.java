@@ -0,0 +1,20 @@
+package com.unir.books.catalogue.controller.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class StockItemResult {
+
+    private Long bookId;
+    private Integer quantity;
+    private StockItemStatus status;
+    private Integer stock;
+    private Long version;
+
+}
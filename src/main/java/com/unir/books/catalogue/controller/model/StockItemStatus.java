@@ -0,0 +1,11 @@
+package com.unir.books.catalogue.controller.model;
+
+public enum StockItemStatus {
+    RESERVED,
+    RELEASED,
+    ROLLED_BACK,
+    INVALID_QUANTITY,
+    NOT_FOUND,
+    INSUFFICIENT_STOCK,
+    VERSION_CONFLICT,
+}
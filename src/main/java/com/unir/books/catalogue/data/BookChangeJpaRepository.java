@@ -0,0 +1,27 @@
+package com.unir.books.catalogue.data;
+
+import com.unir.books.catalogue.data.model.BookChange;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Date;
+import java.util.List;
+
+interface BookChangeJpaRepository extends JpaRepository<BookChange, Long> {
+
+    List<BookChange> findByIdGreaterThanAndIdLessThanOrderById(Long after, Long before, Limit limit);
+
+    @Query("select max(c.id) from BookChange c where c.changedAt < :cutoff")
+    Long findLastIdBefore(@Param("cutoff") Date cutoff);
+
+    @Query("select max(c.id) from BookChange c where c.id < :before")
+    Long findLastIdBelow(@Param("before") Long before);
+
+    @Modifying
+    @Query("delete from BookChange c where c.id <= :id")
+    int deleteUpTo(@Param("id") Long id);
+
+}
@@ -0,0 +1,158 @@
+package com.unir.books.catalogue.data;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.unir.books.catalogue.data.event.BookChangeEvent;
+import com.unir.books.catalogue.data.model.Book;
+import com.unir.books.catalogue.data.model.BookChange;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Transactional outbox of book changes. Every {@link BookChangeEvent} is stored as a {@link BookChange} row in the
+ * transaction of the write that caused it, so the log holds exactly the committed changes.
+ * <p>
+ * The row id is the offset of the change. Ids are allocated when the row is persisted but transactions can commit
+ * in a different order, so {@link #read} only returns changes below the oldest offset still in flight. A consumer
+ * resuming from the last offset it saw therefore never skips a change that commits late.
+ * <p>
+ * Only changes written through this instance are logged, not those replicated from its peers.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BookChangeLog {
+
+    private final BookChangeJpaRepository repository;
+
+    private final EntityManager entityManager;
+
+    private final ObjectMapper objectMapper;
+
+    private final Lock lock = new ReentrantLock();
+
+    private final NavigableSet<Long> inFlight = new ConcurrentSkipListSet<>();
+
+    private final List<Runnable> subscribers = new CopyOnWriteArrayList<>();
+
+    private volatile long purgedUpTo;
+
+    @Value("${catalogue.changes.retention:24h}")
+    private Duration retention;
+
+    @EventListener
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(BookChangeEvent event) {
+
+        // Peers log their own changes; logging replicated ones again would send them back
+        if (event.isReplicated()) {
+            return;
+        }
+
+        Book book = event.getBook();
+        BookChange change = BookChange.builder()
+                .type(event.getType())
+                .bookId(book.getId())
+                .bookVersion(book.getVersion())
+                .changedAt(new Date())
+                .payload(toJson(book))
+                .build();
+
+        // Allocating the offset and marking it in flight must be atomic for the horizon computed in read()
+        lock.lock();
+        try {
+            entityManager.persist(change);
+            inFlight.add(change.getId());
+        } finally {
+            lock.unlock();
+        }
+
+        Long offset = change.getId();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                inFlight.remove(offset);
+                subscribers.forEach(Runnable::run);
+            }
+        });
+    }
+
+    /**
+     * Up to {@code limit} committed changes with an offset greater than {@code after}, in offset order.
+     */
+    public List<BookChange> read(long after, int limit) {
+        return repository.findByIdGreaterThanAndIdLessThanOrderById(after, horizon(), Limit.of(limit));
+    }
+
+    /**
+     * The offset of the last change that {@link #read} can return. Every change up to it is committed, so a
+     * consumer that copies the current state of the books after calling this can continue the log from there.
+     */
+    public long head() {
+        Long last = repository.findLastIdBelow(horizon());
+        return last == null ? purgedUpTo : last;
+    }
+
+    /**
+     * Whether every change after {@code after} is still in the log, i.e. none of them has been purged.
+     */
+    public boolean isAvailable(long after) {
+        return after >= purgedUpTo;
+    }
+
+    /**
+     * Registers a callback run after every transaction that appended changes, committed or not.
+     */
+    public void subscribe(Runnable subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.MINUTES)
+    @Transactional
+    public void purge() {
+
+        Long last = repository.findLastIdBefore(new Date(System.currentTimeMillis() - retention.toMillis()));
+        if (last != null) {
+            int purged = repository.deleteUpTo(last);
+            purgedUpTo = Math.max(purgedUpTo, last);
+            log.debug("Purged {} book changes up to offset {}", purged, last);
+        }
+    }
+
+    private long horizon() {
+        lock.lock();
+        try {
+            return inFlight.isEmpty() ? Long.MAX_VALUE : inFlight.first();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private String toJson(Book book) {
+        try {
+            return objectMapper.writeValueAsString(book);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Book " + book.getId() + " cannot be serialized", e);
+        }
+    }
+}
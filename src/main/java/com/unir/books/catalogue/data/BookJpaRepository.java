@@ -1,8 +1,12 @@
 package com.unir.books.catalogue.data;
 
 import com.unir.books.catalogue.data.model.Book;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.Date;
 import java.util.List;
@@ -23,4 +27,16 @@ interface BookJpaRepository extends JpaRepository<Book, Long>, JpaSpecificationE
 
     List<Book> findByPrice(Double price);
 
+    List<Book> findByIdGreaterThanOrderById(Long after, Limit limit);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Book b set b.stock = b.stock - :quantity, b.version = b.version + 1, b.lastModified = current_timestamp "
+            + "where b.id = :id and b.stock >= :quantity and (:version is null or b.version = :version)")
+    int decreaseStock(@Param("id") Long id, @Param("quantity") int quantity, @Param("version") Long version);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Book b set b.stock = b.stock + :quantity, b.version = b.version + 1, b.lastModified = current_timestamp "
+            + "where b.id = :id and (:version is null or b.version = :version)")
+    int increaseStock(@Param("id") Long id, @Param("quantity") int quantity, @Param("version") Long version);
+
 }
@@ -0,0 +1,107 @@
+package com.unir.books.catalogue.data;
+
+import com.unir.books.catalogue.data.model.Book;
+import com.unir.books.catalogue.data.utils.Constants;
+import com.unir.books.catalogue.data.utils.SearchCriteria;
+import com.unir.books.catalogue.data.utils.SearchStatement;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Parameterized JPQL for book searches, rendered once per filter shape (the fields and operations present) and
+ * reused for every search with that shape. Only the values are bound per request, and since the query string is
+ * identical Hibernate serves its parsed and translated form from its query plan cache instead of building a
+ * Criteria tree and rendering SQL each time. There are few distinct shapes, so the cache is not bounded.
+ */
+@Component
+class BookQueryTemplates {
+
+    private static final Comparator<SearchStatement> SHAPE_ORDER =
+            Comparator.comparing(SearchStatement::getKey).thenComparing(SearchStatement::getOperation);
+
+    private final Map<String, String> templates = new ConcurrentHashMap<>();
+
+    private final EntityManager entityManager;
+
+    BookQueryTemplates(EntityManager entityManager, MeterRegistry meterRegistry) {
+        this.entityManager = entityManager;
+        Gauge.builder("books.search.templates", templates, Map::size)
+                .description("Query templates cached by filter shape")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Books matching the criteria with an id greater than {@code after}, ordered by id. {@code after} and
+     * {@code limit} may be {@code null}.
+     */
+    TypedQuery<Book> query(SearchCriteria<Book> criteria, Long after, Integer limit) {
+
+        List<SearchStatement> statements = criteria.getStatements().stream().sorted(SHAPE_ORDER).toList();
+        String shape = criteria.toShape() + (after != null ? "|after" : "");
+
+        TypedQuery<Book> query = entityManager.createQuery(
+                templates.computeIfAbsent(shape, key -> render(statements, after != null)), Book.class);
+
+        for (int i = 0; i < statements.size(); i++) {
+            query.setParameter("p" + i, value(statements.get(i)));
+        }
+        if (after != null) {
+            query.setParameter("after", after);
+        }
+        if (limit != null) {
+            query.setMaxResults(limit);
+        }
+        return query;
+    }
+
+    private static String render(List<SearchStatement> statements, boolean after) {
+
+        StringBuilder jpql = new StringBuilder("select b from Book b");
+        String separator = " where ";
+        for (int i = 0; i < statements.size(); i++) {
+            SearchStatement statement = statements.get(i);
+            String path = "b." + statement.getKey();
+            String parameter = ":p" + i;
+
+            jpql.append(separator).append(switch (statement.getOperation()) {
+                case GREATER_THAN -> path + " > " + parameter;
+                case LESS_THAN -> path + " < " + parameter;
+                case GREATER_THAN_EQUAL -> path + " >= " + parameter;
+                case LESS_THAN_EQUAL -> path + " <= " + parameter;
+                case NOT_EQUAL -> path + " <> " + parameter;
+                case EQUAL -> path + " = " + parameter;
+                case MATCH, MATCH_END -> "lower(" + path + ") like " + parameter;
+                case IN -> path + " in " + parameter;
+            });
+            separator = " and ";
+        }
+        if (after) {
+            jpql.append(separator).append("b.").append(Constants.ID).append(" > :after");
+        }
+        return jpql.append(" order by b.").append(Constants.ID).toString();
+    }
+
+    private Object value(SearchStatement statement) {
+        Object value = statement.getValue();
+        return switch (statement.getOperation()) {
+            case MATCH -> "%" + value.toString().toLowerCase() + "%";
+            case MATCH_END -> value.toString().toLowerCase() + "%";
+            case IN -> ((Collection<?>) value).stream().map(item -> typed(statement.getKey(), item)).toList();
+            default -> typed(statement.getKey(), value);
+        };
+    }
+
+    private Object typed(String attribute, Object value) {
+        return SearchCriteria.typed(
+                entityManager.getMetamodel().entity(Book.class).getAttribute(attribute).getJavaType(), value);
+    }
+}
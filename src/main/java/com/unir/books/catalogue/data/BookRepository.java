@@ -1,77 +1,610 @@
 package com.unir.books.catalogue.data;
 
+import com.unir.books.catalogue.config.ReplicaRoutingDataSource;
+import com.unir.books.catalogue.data.cache.BookCache;
+import com.unir.books.catalogue.data.cache.SearchResultCache;
+import com.unir.books.catalogue.data.event.BookChangeEvent;
+import com.unir.books.catalogue.data.event.BookChangeType;
+import com.unir.books.catalogue.data.index.BookSearchIndex;
 import com.unir.books.catalogue.data.model.Book;
+import com.unir.books.catalogue.data.model.BookSummary;
+import com.unir.books.catalogue.data.model.BookTombstone;
+import com.unir.books.catalogue.data.utils.BookFilter;
 import com.unir.books.catalogue.data.utils.Constants;
 import com.unir.books.catalogue.data.utils.SearchCriteria;
 import com.unir.books.catalogue.data.utils.SearchOperation;
 import com.unir.books.catalogue.data.utils.SearchStatement;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
 import lombok.RequiredArgsConstructor;
 import org.apache.commons.lang3.StringUtils;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Repository
 @RequiredArgsConstructor
+@Timed(value = "books.repository", description = "Time spent in BookRepository methods")
 public class BookRepository {
 
+    private static final String UPDATE = "UPDATE books SET title = ?, author = ?, published = ?, category = ?, isbn = ?, "
+            + "rating = ?, visible = ?, price = ?, stock = ?, version = ?, last_modified = ? WHERE id = ? AND version = ?";
+
+    private static final String UPDATE_IF_NEWER = "UPDATE books SET title = ?, author = ?, published = ?, category = ?, "
+            + "isbn = ?, rating = ?, visible = ?, price = ?, stock = ?, version = ?, last_modified = ? "
+            + "WHERE id = ? AND (version < ? OR (version = ? AND last_modified < ?))";
+
+    private static final String INSERT = "INSERT INTO books (title, author, published, category, isbn, rating, visible, "
+            + "price, stock, version, last_modified, id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String DELETE_IF_NOT_NEWER = "DELETE FROM books WHERE id = ? AND version <= ?";
+
+    private static final String UPDATE_TOMBSTONE = "UPDATE book_tombstones SET version = ?, deleted_at = ? "
+            + "WHERE id = ? AND version < ?";
+
+    private static final String INSERT_TOMBSTONE = "INSERT INTO book_tombstones (id, version, deleted_at) "
+            + "SELECT ?, ?, ? WHERE NOT EXISTS (SELECT 1 FROM book_tombstones WHERE id = ?)";
+
     private final BookJpaRepository repository;
 
+    private final BookTombstoneJpaRepository tombstoneRepository;
+
+    private final EntityManager entityManager;
+
+    private final BookCache bookCache;
+
+    private final SearchResultCache searchResultCache;
+
+    private final BookSearchIndex searchIndex;
+
+    private final BookQueryTemplates queryTemplates;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final MeterRegistry meterRegistry;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${catalogue.books.stream-fetch-size:500}")
+    private int streamFetchSize;
+
+    @Value("${catalogue.search.index.max-candidates:1000}")
+    private int maxIndexCandidates;
+
+    /**
+     * Counter bumped by every write to the catalogue; equal values mean identical search results.
+     */
+    public long getGeneration() {
+        return searchResultCache.generation();
+    }
+
+    public long getLastModified() {
+        return searchResultCache.lastModified();
+    }
+
+    /**
+     * Marks the catalogue as changed by a write not in the database yet, such as a buffered update, so validators
+     * of whole-catalogue responses stop matching. Searches return the stored rows until the write lands.
+     */
+    public void markChanged() {
+        searchResultCache.invalidate();
+    }
+
     public List<Book> getBooks() {
         return repository.findAll();
     }
 
+    /**
+     * The book with the given id, from the cache or loaded from the database. Clients pinned to the primary after
+     * a write skip the cache, which may still hold the row as a lagging replica had it.
+     */
     public Book getBookById(Long id) {
+        if (ReplicaRoutingDataSource.isPinned()) {
+            return repository.findById(id).map(book -> book.toBuilder().build()).orElse(null);
+        }
+        return bookCache.get(id, key -> repository.findById(key).orElse(null));
+    }
+
+    /**
+     * Books for the given ids, read from the cache and loaded from the database with a single query for the ids
+     * not cached, or all from the database for clients pinned to the primary. Ids that do not exist are absent
+     * from the result.
+     */
+    public Map<Long, Book> getBooksById(Collection<Long> ids) {
+        if (ReplicaRoutingDataSource.isPinned()) {
+            return repository.findAllById(ids).stream()
+                    .collect(Collectors.toMap(Book::getId, book -> book.toBuilder().build()));
+        }
+        return bookCache.getAll(ids, missing -> repository.findAllById(missing).stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity())));
+    }
+
+    /**
+     * The managed entity for the given id, bypassing the cache. Use it inside a transaction to modify a book in
+     * place; {@link #save(Book)} then flushes the changes without a merge SELECT.
+     */
+    public Book getBookForUpdate(Long id) {
         return repository.findById(id).orElse(null);
     }
 
+    @Transactional
     public Book save(Book book) {
-        return repository.save(book);
+        Book saved = repository.saveAndFlush(book);
+        bookCache.evict(saved.getId());
+        searchResultCache.invalidate();
+        eventPublisher.publishEvent(new BookChangeEvent(BookChangeType.SAVED, saved.toBuilder().build()));
+        return saved;
     }
 
+    /**
+     * Inserts the books in one transaction using JDBC batching and clears the persistence context afterwards, so
+     * callers can ingest large feeds chunk by chunk with flat memory use.
+     */
+    @Transactional
+    public List<Book> saveAll(List<Book> books) {
+        List<Book> saved = repository.saveAll(books);
+        entityManager.flush();
+        entityManager.clear();
+
+        for (Book book : saved) {
+            bookCache.evict(book.getId());
+            eventPublisher.publishEvent(new BookChangeEvent(BookChangeType.SAVED, book.toBuilder().build()));
+        }
+        searchResultCache.invalidate();
+        return saved;
+    }
+
+    /**
+     * Writes the given state of existing books with one JDBC batch, each row only if its version is still the one
+     * in {@code expectedVersions}. The new version and last modification date are taken from the books as they
+     * are. Returns the ids of the books written; the others were changed or deleted by someone else.
+     */
+    @Transactional
+    public Set<Long> updateAll(List<Book> books, Map<Long, Long> expectedVersions) {
+
+        int[][] counts = jdbcTemplate.batchUpdate(UPDATE, books, books.size(), (statement, book) -> {
+            bindColumns(statement, book);
+            statement.setLong(12, book.getId());
+            statement.setLong(13, expectedVersions.get(book.getId()));
+        });
+
+        Set<Long> updated = new HashSet<>();
+        for (int i = 0; i < books.size(); i++) {
+            // Drivers that cannot tell per statement counts report SUCCESS_NO_INFO, which is taken as applied
+            int count = counts[0][i];
+            if (count > 0 || count == Statement.SUCCESS_NO_INFO) {
+                Book book = books.get(i);
+                updated.add(book.getId());
+                bookCache.evict(book.getId());
+                eventPublisher.publishEvent(new BookChangeEvent(BookChangeType.SAVED, book.toBuilder().build()));
+            }
+        }
+        if (!updated.isEmpty()) {
+            searchResultCache.invalidate();
+        }
+        return updated;
+    }
+
+    /**
+     * Applies a change replicated from a peer instance, keeping the newest state of the book: a saved book is
+     * written only if it is missing here or has a higher version (or the same version, modified later) than the
+     * local row, and a delete only removes the row if it is not newer than the deleted version. Deletes leave a
+     * {@link BookTombstone}, and a saved book no newer than its tombstone is ignored, so a late change never
+     * brings a deleted book back. Published events are marked as replicated, so the change is not logged and
+     * sent back. Returns whether anything was written.
+     * <p>
+     * The newest version wins as a whole, so this is last writer wins per book: stock reserved concurrently on
+     * two instances keeps only one of the reservations. With replication enabled, stock changes must be made
+     * through a single writer instance.
+     */
+    @Transactional
+    public boolean replicate(BookChangeType type, Book book) {
+
+        int written;
+        if (type == BookChangeType.DELETED) {
+            written = jdbcTemplate.update(DELETE_IF_NOT_NEWER, book.getId(), book.getVersion());
+            bury(book.getId(), book.getVersion());
+        } else {
+            Long deleted = jdbcTemplate.query("SELECT version FROM book_tombstones WHERE id = ?",
+                    result -> result.next() ? result.getLong(1) : null, book.getId());
+            if (deleted != null && book.getVersion() <= deleted) {
+                return false;
+            }
+            written = jdbcTemplate.update(UPDATE_IF_NEWER, statement -> {
+                bindColumns(statement, book);
+                statement.setLong(12, book.getId());
+                statement.setLong(13, book.getVersion());
+                statement.setLong(14, book.getVersion());
+                statement.setTimestamp(15, new Timestamp(book.getLastModified().getTime()));
+            });
+            if (written == 0 && !repository.existsById(book.getId())) {
+                written = jdbcTemplate.update(INSERT, statement -> {
+                    bindColumns(statement, book);
+                    statement.setLong(12, book.getId());
+                });
+            }
+        }
+
+        if (written > 0) {
+            bookCache.evict(book.getId());
+            searchResultCache.invalidate();
+            eventPublisher.publishEvent(new BookChangeEvent(type, book.toBuilder().build(), true));
+        }
+        return written > 0;
+    }
+
+    /**
+     * Up to {@code limit} books with an id greater than {@code after}, in id order. Not read-only, so it reads
+     * the primary database even when read replicas are configured.
+     */
+    @Transactional
+    public List<Book> getBooksAfter(long after, int limit) {
+        return repository.findByIdGreaterThanOrderById(after, Limit.of(limit));
+    }
+
+    /**
+     * Up to {@code limit} tombstones of deleted books with an id greater than {@code after}, in id order.
+     */
+    @Transactional
+    public List<BookTombstone> getTombstonesAfter(long after, int limit) {
+        return tombstoneRepository.findByIdGreaterThanOrderById(after, Limit.of(limit));
+    }
+
+    /**
+     * Moves the id sequence past the highest id in {@code [from, to)}, and to at least {@code from}, so that
+     * instances given disjoint ranges never generate the same id.
+     */
+    @Transactional
+    public void reserveIds(long from, long to) {
+
+        Long max = jdbcTemplate.queryForObject("SELECT MAX(id) FROM books WHERE id >= ? AND id < ?", Long.class,
+                from, to);
+        // The pooled id generator hands out the 50 ids below each sequence value, so leave room for them
+        jdbcTemplate.execute("ALTER SEQUENCE books_seq RESTART WITH " + (Math.max(from, max == null ? 0 : max) + 100));
+    }
+
+    /**
+     * Records that a book was deleted at {@code version}, keeping the highest version if it was deleted before.
+     */
+    private void bury(Long id, Long version) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        if (jdbcTemplate.update(UPDATE_TOMBSTONE, version, now, id, version) == 0) {
+            jdbcTemplate.update(INSERT_TOMBSTONE, id, version, now, id);
+        }
+    }
+
+    private static void bindColumns(PreparedStatement statement, Book book) throws SQLException {
+        statement.setString(1, book.getTitle());
+        statement.setString(2, book.getAuthor());
+        statement.setObject(3, book.getPublished() == null ? null : new Timestamp(book.getPublished().getTime()),
+                Types.TIMESTAMP);
+        statement.setString(4, book.getCategory());
+        statement.setString(5, book.getIsbn());
+        statement.setObject(6, book.getRating(), Types.INTEGER);
+        statement.setObject(7, book.getVisible(), Types.BOOLEAN);
+        statement.setObject(8, book.getPrice(), Types.DOUBLE);
+        statement.setObject(9, book.getStock(), Types.INTEGER);
+        statement.setLong(10, book.getVersion());
+        statement.setTimestamp(11, new Timestamp(book.getLastModified().getTime()));
+    }
+
+    /**
+     * Adds {@code delta} units to the stock of a book with a single conditional UPDATE, so concurrent reservations
+     * never lose updates and no row lock is held beyond the statement. A negative delta only applies if enough
+     * stock is left, and a non-null {@code expectedVersion} only applies if it is still the current version.
+     * Returns the updated book, or {@code null} if the update did not apply.
+     */
+    @Transactional
+    public Book changeStock(Long id, int delta, Long expectedVersion) {
+
+        int updated = delta < 0
+                ? repository.decreaseStock(id, -delta, expectedVersion)
+                : repository.increaseStock(id, delta, expectedVersion);
+        if (updated == 0) {
+            return null;
+        }
+
+        Book book = repository.findById(id).orElseThrow();
+        bookCache.evict(id);
+        searchResultCache.invalidate();
+        eventPublisher.publishEvent(new BookChangeEvent(BookChangeType.SAVED, book.toBuilder().build()));
+        return book;
+    }
+
+    @Transactional
     public void delete(Book book) {
         repository.delete(book);
+        bury(book.getId(), book.getVersion());
+        bookCache.evict(book.getId());
+        searchResultCache.invalidate();
+        eventPublisher.publishEvent(new BookChangeEvent(BookChangeType.DELETED, book.toBuilder().build()));
+    }
+
+    @Transactional(readOnly = true)
+    public List<Book> search(BookFilter filter) {
+        SearchCriteria<Book> spec = criteria(filter);
+        String operations = spec.getStatements().isEmpty() ? "none" : spec.toShape();
+
+        List<Book> books = Timer.builder("books.search")
+                .description("Catalogue searches by the set of filters used")
+                .tag("operations", operations)
+                .register(meterRegistry)
+                .record(() -> {
+                    Supplier<List<Book>> query = () -> {
+                        SearchCriteria<Book> resolved = resolveIndexed(spec);
+                        return resolved == null
+                                ? List.of()
+                                : queryTemplates.query(resolved, null, null).getResultList();
+                    };
+                    // Clients pinned to the primary skip results that may have been read from a lagging replica
+                    return ReplicaRoutingDataSource.isPinned() ? query.get() : searchResultCache.get(spec, query);
+                });
+
+        DistributionSummary.builder("books.search.results")
+                .description("Number of books returned by catalogue searches")
+                .tag("operations", operations)
+                .register(meterRegistry)
+                .record(books.size());
+        return books;
+    }
+
+    /**
+     * Keyset page: at most {@code limit} books matching the criteria with an id greater than {@code after},
+     * ordered by id. No count query is issued.
+     */
+    @Transactional(readOnly = true)
+    public List<Book> searchAfter(SearchCriteria<Book> criteria, Long after, int limit) {
+
+        SearchCriteria<Book> resolved = resolveIndexed(criteria);
+        if (resolved == null) {
+            return List.of();
+        }
+
+        return queryTemplates.query(resolved, after, limit).getResultList();
+    }
+
+    /**
+     * Compact view of the books matching the criteria, selecting only the {@link BookSummary} columns. Same
+     * ordering and cursor semantics as {@link #searchAfter}; {@code limit} may be {@code null} for all matches.
+     */
+    @Transactional(readOnly = true)
+    public List<BookSummary> searchSummaries(SearchCriteria<Book> criteria, Long after, Integer limit) {
+
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<BookSummary> query = builder.createQuery(BookSummary.class);
+        Root<Book> root = query.from(Book.class);
+        query.select(builder.construct(BookSummary.class, root.get(Constants.ID), root.get(Constants.TITLE),
+                root.get(Constants.AUTHOR), root.get(Constants.PRICE), root.get(Constants.RATING)));
+
+        return project(query, root, builder, criteria, after, limit);
+    }
+
+    /**
+     * The given fields of the books matching the criteria, one map per book in the order of {@code fields}. Only
+     * those columns are selected, as a tuple query. Same ordering and cursor semantics as {@link #searchSummaries}.
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> searchFields(SearchCriteria<Book> criteria, List<String> fields,
+                                                  Long after, Integer limit) {
+
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<Book> root = query.from(Book.class);
+        query.multiselect(fields.stream().<Selection<?>>map(field -> root.get(field).alias(field)).toList());
+
+        return project(query, root, builder, criteria, after, limit).stream()
+                .map(tuple -> {
+                    Map<String, Object> values = new LinkedHashMap<>();
+                    fields.forEach(field -> values.put(field, tuple.get(field)));
+                    return values;
+                })
+                .toList();
+    }
+
+    /**
+     * Forward-only cursor over the books matching the criteria. Each book is detached before being handed out so
+     * the persistence context does not grow with the result. Must run inside a transaction and be closed after use.
+     */
+    public Stream<Book> stream(SearchCriteria<Book> criteria) {
+
+        return queryTemplates.query(criteria, null, null)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, streamFetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream()
+                .map(book -> {
+                    entityManager.detach(book);
+                    return book;
+                });
+    }
+
+    /**
+     * Number of books matching the criteria per distinct value of {@code field}, computed with a grouped query.
+     */
+    @Transactional(readOnly = true)
+    public Map<Object, Long> countBy(SearchCriteria<Book> criteria, String field) {
+        return count(criteria, root -> root.get(field));
+    }
+
+    /**
+     * Number of books matching the criteria per price band. Band {@code i} holds prices below {@code bounds[i]}
+     * and not below the previous bound; the last band, {@code bounds.size()}, holds the rest.
+     */
+    @Transactional(readOnly = true)
+    public Map<Object, Long> countByPriceBand(SearchCriteria<Book> criteria, List<Double> bounds) {
+
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        return count(criteria, root -> {
+            CriteriaBuilder.Case<Integer> band = builder.selectCase();
+            for (int i = 0; i < bounds.size(); i++) {
+                band = band.when(builder.lessThan(root.get(Constants.PRICE), bounds.get(i)), i);
+            }
+            return band.otherwise(bounds.size());
+        });
+    }
+
+    private Map<Object, Long> count(SearchCriteria<Book> criteria, Function<Root<Book>, Expression<?>> key) {
+
+        SearchCriteria<Book> resolved = resolveIndexed(criteria);
+        if (resolved == null) {
+            return Map.of();
+        }
+
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<Book> root = query.from(Book.class);
+        Expression<?> group = key.apply(root);
+        query.multiselect(group, builder.count(root))
+                .where(resolved.toPredicate(root, query, builder))
+                .groupBy(group)
+                .orderBy(builder.asc(group));
+
+        Map<Object, Long> counts = new LinkedHashMap<>();
+        for (Tuple tuple : entityManager.createQuery(query).getResultList()) {
+            counts.put(tuple.get(0), tuple.get(1, Long.class));
+        }
+        return counts;
     }
 
-    public List<Book> search(String title, String author, String category, String isbn,
-                             Date publishedDate, Double price, Integer rating, Boolean visible) {
+    private <T> List<T> project(CriteriaQuery<T> query, Root<Book> root, CriteriaBuilder builder,
+                                SearchCriteria<Book> criteria, Long after, Integer limit) {
+
+        SearchCriteria<Book> resolved = resolveIndexed(criteria);
+        if (resolved == null) {
+            return List.of();
+        }
+
+        Predicate where = resolved.toPredicate(root, query, builder);
+        if (after != null) {
+            where = builder.and(where, builder.greaterThan(root.get(Constants.ID), after));
+        }
+        query.where(where).orderBy(builder.asc(root.get(Constants.ID)));
+
+        TypedQuery<T> typed = entityManager.createQuery(query);
+        if (limit != null) {
+            typed.setMaxResults(limit);
+        }
+        return typed.getResultList();
+    }
+
+    /**
+     * Answers the statements supported by the in-memory search index and replaces them with a single
+     * {@code id IN (...)} statement, leaving the remaining predicates to the database. Returns {@code null} when no
+     * book can match, and the criteria unchanged when the index is not ready or matches too many books.
+     */
+    private SearchCriteria<Book> resolveIndexed(SearchCriteria<Book> criteria) {
+
+        if (!searchIndex.isReady()) {
+            return criteria;
+        }
+
+        SearchCriteria<Book> resolved = new SearchCriteria<>();
+        Set<Long> ids = null;
+        for (SearchStatement statement : criteria.getStatements()) {
+            if (BookSearchIndex.supports(statement.getKey(), statement.getOperation())) {
+                List<Long> matches = searchIndex.search(
+                        statement.getKey(), statement.getValue().toString(), statement.getOperation());
+                if (ids == null) {
+                    ids = new HashSet<>(matches);
+                } else {
+                    ids.retainAll(matches);
+                }
+            } else {
+                resolved.add(statement);
+            }
+        }
+
+        if (ids == null) {
+            return criteria;
+        } else if (ids.isEmpty()) {
+            return null;
+        } else if (ids.size() > maxIndexCandidates) {
+            return criteria;
+        }
+
+        resolved.add(new SearchStatement(Constants.ID, ids, SearchOperation.IN));
+        return resolved;
+    }
+
+    public SearchCriteria<Book> criteria(BookFilter filter) {
 
         SearchCriteria<Book> spec = new SearchCriteria<>();
 
-        if (StringUtils.isNotBlank(title)) {
-            spec.add(new SearchStatement(Constants.TITLE, title, SearchOperation.MATCH));
+        if (StringUtils.isNotBlank(filter.getTitle())) {
+            spec.add(new SearchStatement(Constants.TITLE, filter.getTitle(), SearchOperation.MATCH));
+        }
+
+        if (StringUtils.isNotBlank(filter.getAuthor())) {
+            spec.add(new SearchStatement(Constants.AUTHOR, filter.getAuthor(), SearchOperation.MATCH));
+        }
+
+        if (StringUtils.isNotBlank(filter.getCategory())) {
+            spec.add(new SearchStatement(Constants.CATEGORY, filter.getCategory(), SearchOperation.EQUAL));
+        }
+
+        if (StringUtils.isNotBlank(filter.getIsbn())) {
+            spec.add(new SearchStatement(Constants.ISBN, filter.getIsbn(), SearchOperation.EQUAL));
         }
 
-        if (StringUtils.isNotBlank(author)) {
-            spec.add(new SearchStatement(Constants.AUTHOR, author, SearchOperation.MATCH));
+        if (filter.getPublishedDate() != null) {
+            spec.add(new SearchStatement(Constants.PUBLISHED, filter.getPublishedDate(), SearchOperation.GREATER_THAN_EQUAL));
         }
 
-        if (StringUtils.isNotBlank(category)) {
-            spec.add(new SearchStatement(Constants.CATEGORY, category, SearchOperation.EQUAL));
+        if (filter.getPrice() != null) {
+            spec.add(new SearchStatement(Constants.PRICE, filter.getPrice(), SearchOperation.EQUAL));
         }
 
-        if (StringUtils.isNotBlank(isbn)) {
-            spec.add(new SearchStatement(Constants.ISBN, isbn, SearchOperation.EQUAL));
+        if (filter.getMinPrice() != null) {
+            spec.add(new SearchStatement(Constants.PRICE, filter.getMinPrice(), SearchOperation.GREATER_THAN_EQUAL));
         }
 
-        if (publishedDate != null) {
-            spec.add(new SearchStatement(Constants.PUBLISHED, publishedDate, SearchOperation.GREATER_THAN_EQUAL));
+        if (filter.getMaxPrice() != null) {
+            spec.add(new SearchStatement(Constants.PRICE, filter.getMaxPrice(), SearchOperation.LESS_THAN_EQUAL));
         }
 
-        if (price != null) {
-            spec.add(new SearchStatement(Constants.PRICE, price, SearchOperation.EQUAL));
+        if (filter.getRating() != null) {
+            spec.add(new SearchStatement(Constants.RATING, filter.getRating(), SearchOperation.GREATER_THAN_EQUAL));
         }
 
-        if (rating != null) {
-            spec.add(new SearchStatement(Constants.RATING, rating, SearchOperation.GREATER_THAN_EQUAL));
+        if (filter.getMaxRating() != null) {
+            spec.add(new SearchStatement(Constants.RATING, filter.getMaxRating(), SearchOperation.LESS_THAN_EQUAL));
         }
 
-        if (visible != null) {
-            spec.add(new SearchStatement(Constants.VISIBLE, visible, SearchOperation.EQUAL));
+        if (filter.getVisible() != null) {
+            spec.add(new SearchStatement(Constants.VISIBLE, filter.getVisible(), SearchOperation.EQUAL));
         }
 
-        return repository.findAll(spec);
+        return spec;
     }
 
 }
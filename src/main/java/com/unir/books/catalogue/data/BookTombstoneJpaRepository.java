@@ -0,0 +1,13 @@
+package com.unir.books.catalogue.data;
+
+import com.unir.books.catalogue.data.model.BookTombstone;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+interface BookTombstoneJpaRepository extends JpaRepository<BookTombstone, Long> {
+
+    List<BookTombstone> findByIdGreaterThanOrderById(Long after, Limit limit);
+
+}
@@ -0,0 +1,100 @@
+package com.unir.books.catalogue.data.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.unir.books.catalogue.data.model.Book;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Bounded read-through cache of books by id. Entries are private copies: callers always receive a fresh copy they
+ * are free to modify, so the cached state only changes through {@link #evict(Long)}. Hit, miss and eviction
+ * counters are published as the {@code cache.*} meters tagged {@code cache=books}.
+ */
+@Component
+public class BookCache {
+
+    private final Cache<Long, Book> cache;
+
+    private final ReplicaLagGuard replicaLagGuard;
+
+    public BookCache(@Value("${catalogue.cache.books.max-size:10000}") long maxSize,
+                     @Value("${catalogue.cache.books.ttl:10m}") Duration ttl,
+                     MeterRegistry meterRegistry, ReplicaLagGuard replicaLagGuard) {
+
+        this.replicaLagGuard = replicaLagGuard;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "books");
+    }
+
+    public Book get(Long id, Function<Long, Book> loader) {
+        Book book = cache.get(id, key -> copyOf(loader.apply(key)));
+        return copyOf(book);
+    }
+
+    /**
+     * Returns the books found for the given ids, loading every missing id with a single call to {@code loader}.
+     * Ids that do not exist are absent from the result. Loaded books are returned but not cached: a bulk load is
+     * not serialized with {@link #evict(Long)} the way {@link #get(Long, Function)} is, so it could store a row
+     * read before a concurrent commit after that commit's eviction.
+     */
+    public Map<Long, Book> getAll(Collection<Long> ids, Function<Collection<Long>, Map<Long, Book>> loader) {
+        Map<Long, Book> cached = cache.getAllPresent(ids);
+        List<Long> missing = ids.stream().filter(id -> !cached.containsKey(id)).distinct().toList();
+        Map<Long, Book> loaded = missing.isEmpty() ? Map.of() : loader.apply(missing);
+
+        Map<Long, Book> books = new LinkedHashMap<>();
+        for (Long id : ids) {
+            Book book = cached.containsKey(id) ? cached.get(id) : loaded.get(id);
+            if (book != null) {
+                books.put(id, copyOf(book));
+            }
+        }
+        return books;
+    }
+
+    /**
+     * Drops the entry now and, when called inside a transaction, once more after commit so a concurrent reader
+     * cannot repopulate it with the pre-commit row. With read replicas it is dropped again once they have caught
+     * up, see {@link ReplicaLagGuard}.
+     */
+    public void evict(Long id) {
+        if (id == null) {
+            return;
+        }
+
+        cache.invalidate(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.invalidate(id);
+                }
+            });
+        }
+        replicaLagGuard.repeatAfterLag(() -> cache.invalidate(id));
+    }
+
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    private static Book copyOf(Book book) {
+        return book == null ? null : book.toBuilder().build();
+    }
+}
@@ -0,0 +1,198 @@
+package com.unir.books.catalogue.data.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.unir.books.catalogue.data.event.BookChangeEvent;
+import com.unir.books.catalogue.data.model.Book;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Date;
+import java.util.Objects;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Bounded cache of the encoded form of each book, so responses copy bytes instead of serializing the same
+ * {@link Book} on every request. Each entry holds the encodings of one version of a book, produced on first use: the
+ * JSON, the CBOR and a gzipped JSON. An entry only serves a book with the same version and modification time, so a
+ * stale entry is never returned, and change events drop entries as soon as they are stale.
+ * <p>
+ * Lists are written as the cached fragments of their books between array delimiters. Hit, miss and eviction
+ * counters are published as the {@code cache.*} meters tagged {@code cache=payloads}.
+ */
+@Component
+public class BookPayloadCache {
+
+    // Start and end of a CBOR array of indefinite length
+    private static final int CBOR_ARRAY_START = 0x9F;
+    private static final int CBOR_BREAK = 0xFF;
+
+    private final Cache<Long, Payload> cache;
+
+    private final ObjectMapper objectMapper;
+
+    private final CBORMapper cborMapper = new CBORMapper();
+
+    /**
+     * Encodings served from the cache.
+     */
+    public enum Format {
+
+        JSON(MediaType.APPLICATION_JSON),
+        CBOR(MediaType.APPLICATION_CBOR);
+
+        private final MediaType mediaType;
+
+        Format(MediaType mediaType) {
+            this.mediaType = mediaType;
+        }
+
+        public MediaType getMediaType() {
+            return mediaType;
+        }
+    }
+
+    public BookPayloadCache(@Value("${catalogue.cache.payloads.max-size:100000}") long maxSize,
+                            ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+
+        this.objectMapper = objectMapper;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "payloads");
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangeEvent event) {
+        cache.invalidate(event.getBook().getId());
+    }
+
+    public byte[] encode(Book book, Format format) {
+        Payload payload = payload(book);
+        return format == Format.CBOR ? payload.cbor() : payload.json;
+    }
+
+    /**
+     * The JSON of the book compressed with gzip, or {@code null} if compressing does not make it smaller.
+     */
+    public byte[] gzip(Book book) {
+        return payload(book).gzip();
+    }
+
+    /**
+     * Writes the books as an array: their JSON fragments separated by commas, or their CBOR fragments in an array
+     * of indefinite length.
+     */
+    public void writeArray(Iterable<Book> books, Format format, OutputStream out) throws IOException {
+
+        if (format == Format.CBOR) {
+            out.write(CBOR_ARRAY_START);
+            for (Book book : books) {
+                out.write(encode(book, format));
+            }
+            out.write(CBOR_BREAK);
+            return;
+        }
+
+        out.write('[');
+        boolean first = true;
+        for (Book book : books) {
+            if (!first) {
+                out.write(',');
+            }
+            out.write(encode(book, format));
+            first = false;
+        }
+        out.write(']');
+    }
+
+    private Payload payload(Book book) {
+        Payload payload = cache.getIfPresent(book.getId());
+        if (payload == null || !payload.encodes(book)) {
+            payload = new Payload(book, write(objectMapper, book));
+            cache.put(book.getId(), payload);
+        }
+        return payload;
+    }
+
+    private static byte[] write(ObjectMapper mapper, Book book) {
+        try {
+            return mapper.writeValueAsBytes(book);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Long millis(Date date) {
+        return date == null ? null : date.getTime();
+    }
+
+    /**
+     * Encodings of one version of a book. CBOR and gzip are only produced when first requested; concurrent
+     * requests may both produce them, which is harmless since the result is the same.
+     */
+    private final class Payload {
+
+        private final Book book;
+
+        private final byte[] json;
+
+        private volatile byte[] cbor;
+
+        private volatile byte[] gzip;
+
+        private volatile boolean gzipSmaller = true;
+
+        private Payload(Book book, byte[] json) {
+            // The fields are only read to encode CBOR and compare versions
+            this.book = book.toBuilder().build();
+            this.json = json;
+        }
+
+        boolean encodes(Book other) {
+            // Compared as instants: Hibernate loads a Timestamp, which never equals a Date
+            return Objects.equals(book.getVersion(), other.getVersion())
+                    && Objects.equals(millis(book.getLastModified()), millis(other.getLastModified()));
+        }
+
+        byte[] cbor() {
+            byte[] encoded = cbor;
+            if (encoded == null) {
+                encoded = write(cborMapper, book);
+                cbor = encoded;
+            }
+            return encoded;
+        }
+
+        byte[] gzip() {
+            byte[] compressed = gzip;
+            if (compressed == null && gzipSmaller) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream(json.length);
+                try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+                    out.write(json);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                if (bytes.size() < json.length) {
+                    compressed = bytes.toByteArray();
+                    gzip = compressed;
+                } else {
+                    gzipSmaller = false;
+                }
+            }
+            return compressed;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.unir.books.catalogue.data.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Repeats cache invalidations once the read replicas have caught up. With replicas, a cache miss may be read from a
+ * replica that has not applied the latest commit yet and cache the previous row; invalidating again after the
+ * replication lag allowed for ({@code catalogue.datasource.replicas.read-your-writes}) drops such entries. A replica
+ * lagging longer than that can still leave a stale entry until the next write or the TTL.
+ */
+@Component
+class ReplicaLagGuard {
+
+    private final long lagMillis;
+
+    ReplicaLagGuard(@Value("${catalogue.datasource.replicas.enabled:false}") boolean replicas,
+                    @Value("${catalogue.datasource.replicas.read-your-writes:5s}") Duration lag) {
+        this.lagMillis = replicas ? lag.toMillis() : 0;
+    }
+
+    /**
+     * Runs {@code invalidation} again once the lag has passed since commit, or since now outside a transaction. Does
+     * nothing when reads are not served by replicas.
+     */
+    void repeatAfterLag(Runnable invalidation) {
+        if (lagMillis == 0) {
+            return;
+        }
+
+        Runnable schedule = () -> CompletableFuture.runAsync(invalidation,
+                CompletableFuture.delayedExecutor(lagMillis, TimeUnit.MILLISECONDS));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    schedule.run();
+                }
+            });
+        } else {
+            schedule.run();
+        }
+    }
+}
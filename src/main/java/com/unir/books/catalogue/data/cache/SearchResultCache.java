@@ -0,0 +1,95 @@
+package com.unir.books.catalogue.data.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.unir.books.catalogue.data.model.Book;
+import com.unir.books.catalogue.data.utils.SearchCriteria;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Search results keyed on the catalogue generation plus the normalized statement set. A write bumps the generation,
+ * which makes every older entry unreachable; those entries then age out through the weight bound and the TTL.
+ * Weight is the number of books held, so one huge unfiltered result cannot crowd out the common filters.
+ */
+@Component
+public class SearchResultCache {
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private volatile long lastModified = System.currentTimeMillis();
+
+    private final Cache<String, List<Book>> cache;
+
+    private final ReplicaLagGuard replicaLagGuard;
+
+    public SearchResultCache(@Value("${catalogue.cache.search.max-books:100000}") long maxBooks,
+                             @Value("${catalogue.cache.search.ttl:5m}") Duration ttl,
+                             MeterRegistry meterRegistry, ReplicaLagGuard replicaLagGuard) {
+
+        this.replicaLagGuard = replicaLagGuard;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBooks)
+                .<String, List<Book>>weigher((key, books) -> books.size() + 1)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "searches");
+    }
+
+    public List<Book> get(SearchCriteria<Book> criteria, Supplier<List<Book>> loader) {
+        String key = generation.get() + "|" + criteria.toNormalizedKey();
+        return cache.get(key, k -> List.copyOf(loader.get()));
+    }
+
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Time of the last invalidation, in epoch millis.
+     */
+    public long lastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Bumps the generation now and, inside a transaction, again after commit: a search that ran against
+     * uncommitted state can only have been stored under the intermediate generation, which is never read again.
+     * With read replicas it is bumped once more when they have caught up, see {@link ReplicaLagGuard}.
+     */
+    public void invalidate() {
+        bump();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bump();
+                }
+            });
+        }
+        replicaLagGuard.repeatAfterLag(this::bump);
+    }
+
+    /**
+     * Bumps the generation once the search index has applied a committed change. Searches resolved through the
+     * index between the commit and that point may have been stored under the after-commit generation.
+     */
+    public void indexChanged() {
+        generation.incrementAndGet();
+    }
+
+    private void bump() {
+        generation.incrementAndGet();
+        lastModified = System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,26 @@
+package com.unir.books.catalogue.data.event;
+
+import com.unir.books.catalogue.data.model.Book;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Published by {@code BookRepository} for every write. Listeners that keep derived state (indexes, caches) should
+ * use {@code @TransactionalEventListener(fallbackExecution = true)} so they only see committed changes. A
+ * {@code replicated} change was made on a peer instance and only applied here.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class BookChangeEvent {
+
+    private final BookChangeType type;
+    private final Book book;
+    private final boolean replicated;
+
+    public BookChangeEvent(BookChangeType type, Book book) {
+        this(type, book, false);
+    }
+
+}
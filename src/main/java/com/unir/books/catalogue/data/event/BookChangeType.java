@@ -0,0 +1,6 @@
+package com.unir.books.catalogue.data.event;
+
+public enum BookChangeType {
+    SAVED,
+    DELETED,
+}
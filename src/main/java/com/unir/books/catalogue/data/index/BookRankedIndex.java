@@ -0,0 +1,313 @@
+package com.unir.books.catalogue.data.index;
+
+import com.unir.books.catalogue.data.event.BookChangeEvent;
+import com.unir.books.catalogue.data.event.BookChangeType;
+import com.unir.books.catalogue.data.model.Book;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * In-memory inverted index over the title, author and category of every book, answering free-text queries ranked
+ * by relevance. Text is accent-folded and tokenized by {@link TextAnalyzer}, each book is scored with BM25F (term
+ * frequencies weighted per field and normalized by field length) and query terms also match the indexed terms
+ * within a small edit distance, found through a {@link BkTree} over the term dictionary, at a reduced weight.
+ * <p>
+ * Like {@link BookSearchIndex}, an update retires the old document and appends a new one, and retired documents
+ * are skipped until a compaction drops them. Document frequencies and field lengths only count live documents.
+ */
+@Component
+@Slf4j
+public class BookRankedIndex {
+
+    private static final float K1 = 1.2f;
+
+    private static final float B = 0.75f;
+
+    // Title, author and category, in the order of Doc#tokens
+    private static final float[] FIELD_WEIGHTS = {3f, 2f, 1f};
+
+    private static final int FIELDS = FIELD_WEIGHTS.length;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Postings> terms = new HashMap<>();
+
+    private final Map<Long, Integer> docsByBook = new HashMap<>();
+
+    private final BitSet live = new BitSet();
+
+    private final long[] totalLengths = new long[FIELDS];
+
+    private BkTree dictionary = new BkTree();
+
+    private Doc[] docs = new Doc[1024];
+
+    private int nextDoc;
+
+    private volatile boolean ready;
+
+    /**
+     * A book matching a query and its relevance score.
+     */
+    public record Match(long bookId, double score) {
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void rebuild(Stream<Book> catalogue) {
+        lock.writeLock().lock();
+        try {
+            clear();
+            catalogue.forEach(book -> index(book.getId(), tokens(book)));
+            ready = true;
+            log.info("Ranked index built with {} books and {} terms", docsByBook.size(), terms.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangeEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (event.getType() == BookChangeType.DELETED) {
+                retire(event.getBook().getId());
+            } else {
+                index(event.getBook().getId(), tokens(event.getBook()));
+            }
+            if (nextDoc - docsByBook.size() > Math.max(1024, docsByBook.size())) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The {@code limit} books most relevant to {@code query}, best first. For each query term a book only scores
+     * by its best matching indexed term, so several near spellings of one word do not add up.
+     */
+    public List<Match> search(String query, int limit) {
+
+        Set<String> queryTerms = new LinkedHashSet<>(TextAnalyzer.tokens(query));
+
+        lock.readLock().lock();
+        try {
+            int liveDocs = docsByBook.size();
+            float[] scores = new float[nextDoc];
+            float[] termScores = new float[nextDoc];
+            int[] touched = new int[16];
+            int touchedCount = 0;
+
+            for (String queryTerm : queryTerms) {
+                List<Integer> termDocs = new ArrayList<>();
+
+                for (Map.Entry<String, Integer> expansion : expand(queryTerm).entrySet()) {
+                    Postings postings = terms.get(expansion.getKey());
+                    if (postings == null || postings.df == 0) {
+                        continue;
+                    }
+                    float idf = (float) Math.log(1 + (liveDocs - postings.df + 0.5) / (postings.df + 0.5));
+                    float weight = idf / (1 + expansion.getValue());
+
+                    for (int i = 0; i < postings.size; i++) {
+                        int doc = postings.docs[i];
+                        if (!live.get(doc)) {
+                            continue;
+                        }
+                        float score = weight * saturate(docs[doc], postings.frequencies[i], liveDocs);
+                        if (score > termScores[doc]) {
+                            if (termScores[doc] == 0) {
+                                termDocs.add(doc);
+                            }
+                            termScores[doc] = score;
+                        }
+                    }
+                }
+
+                for (int doc : termDocs) {
+                    if (scores[doc] == 0) {
+                        if (touchedCount == touched.length) {
+                            touched = Arrays.copyOf(touched, touchedCount * 2);
+                        }
+                        touched[touchedCount++] = doc;
+                    }
+                    scores[doc] += termScores[doc];
+                    termScores[doc] = 0;
+                }
+            }
+
+            // Min-heap of the best documents so far: only the top ones are ever ordered
+            PriorityQueue<Integer> top = new PriorityQueue<>(limit + 1, (a, b) -> scores[a] != scores[b]
+                    ? Float.compare(scores[a], scores[b])
+                    : Long.compare(docs[b].bookId, docs[a].bookId));
+            for (int i = 0; i < touchedCount; i++) {
+                top.offer(touched[i]);
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+
+            Match[] matches = new Match[top.size()];
+            for (int i = matches.length - 1; i >= 0; i--) {
+                int doc = top.poll();
+                matches[i] = new Match(docs[doc].bookId, scores[doc]);
+            }
+            return Arrays.asList(matches);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The indexed terms a query term matches, with their edit distance to it. Short terms and numbers must match
+     * exactly; longer words tolerate one typo from three letters and two from six.
+     */
+    private Map<String, Integer> expand(String queryTerm) {
+
+        Map<String, Integer> expansions = new HashMap<>();
+        if (terms.containsKey(queryTerm)) {
+            expansions.put(queryTerm, 0);
+        }
+
+        int maxDistance = queryTerm.length() < 3 || !queryTerm.chars().anyMatch(Character::isLetter) ? 0
+                : queryTerm.length() < 6 ? 1 : 2;
+        if (maxDistance > 0) {
+            dictionary.search(queryTerm, maxDistance, expansions::putIfAbsent);
+        }
+        return expansions;
+    }
+
+    /**
+     * BM25F term weight: the field frequencies are combined by field weight and length before saturating.
+     */
+    private float saturate(Doc doc, int frequencies, int liveDocs) {
+        float frequency = 0;
+        for (int field = 0; field < FIELDS; field++) {
+            int count = (frequencies >>> (field * 10)) & 0x3FF;
+            if (count > 0) {
+                float average = Math.max(1f, (float) totalLengths[field] / liveDocs);
+                frequency += FIELD_WEIGHTS[field] * count / (1 - B + B * doc.tokens[field].length / average);
+            }
+        }
+        return frequency / (K1 + frequency);
+    }
+
+    private static String[][] tokens(Book book) {
+        return new String[][]{
+                TextAnalyzer.tokens(book.getTitle()).toArray(String[]::new),
+                TextAnalyzer.tokens(book.getAuthor()).toArray(String[]::new),
+                TextAnalyzer.tokens(book.getCategory()).toArray(String[]::new)
+        };
+    }
+
+    private void index(long bookId, String[][] tokens) {
+        retire(bookId);
+
+        int doc = nextDoc++;
+        if (doc == docs.length) {
+            docs = Arrays.copyOf(docs, doc * 2);
+        }
+        docs[doc] = new Doc(bookId, tokens);
+        docsByBook.put(bookId, doc);
+        live.set(doc);
+
+        // Frequencies of each term per field, packed ten bits per field
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (int field = 0; field < FIELDS; field++) {
+            totalLengths[field] += tokens[field].length;
+            for (String token : tokens[field]) {
+                int shift = field * 10;
+                frequencies.merge(token, 1 << shift, (a, b) -> ((a >>> shift) & 0x3FF) == 0x3FF ? a : a + b);
+            }
+        }
+        frequencies.forEach((term, packed) -> {
+            Postings postings = terms.computeIfAbsent(term, key -> {
+                dictionary.add(key);
+                return new Postings();
+            });
+            postings.add(doc, packed);
+        });
+    }
+
+    private void retire(long bookId) {
+        Integer doc = docsByBook.remove(bookId);
+        if (doc == null) {
+            return;
+        }
+        live.clear(doc);
+
+        String[][] tokens = docs[doc].tokens;
+        Set<String> distinct = new LinkedHashSet<>();
+        for (int field = 0; field < FIELDS; field++) {
+            totalLengths[field] -= tokens[field].length;
+            distinct.addAll(Arrays.asList(tokens[field]));
+        }
+        for (String term : distinct) {
+            terms.get(term).df--;
+        }
+    }
+
+    private void compact() {
+        List<Doc> remaining = new ArrayList<>(docsByBook.size());
+        for (int doc = live.nextSetBit(0); doc >= 0; doc = live.nextSetBit(doc + 1)) {
+            remaining.add(docs[doc]);
+        }
+        clear();
+        remaining.forEach(doc -> index(doc.bookId, doc.tokens));
+    }
+
+    private void clear() {
+        terms.clear();
+        docsByBook.clear();
+        live.clear();
+        Arrays.fill(totalLengths, 0);
+        Arrays.fill(docs, null);
+        dictionary = new BkTree();
+        nextDoc = 0;
+    }
+
+    private record Doc(long bookId, String[][] tokens) {
+    }
+
+    /**
+     * Documents containing a term, in increasing order, with their packed per-field frequencies. {@code df} only
+     * counts the live ones.
+     */
+    private static final class Postings {
+
+        private int[] docs = new int[2];
+
+        private int[] frequencies = new int[2];
+
+        private int size;
+
+        private int df;
+
+        void add(int doc, int packed) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            docs[size] = doc;
+            frequencies[size++] = packed;
+            df++;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.unir.books.catalogue.data.index;
+
+import com.unir.books.catalogue.data.cache.SearchResultCache;
+import com.unir.books.catalogue.data.event.BookChangeEvent;
+import com.unir.books.catalogue.data.event.BookChangeType;
+import com.unir.books.catalogue.data.model.Book;
+import com.unir.books.catalogue.data.utils.Constants;
+import com.unir.books.catalogue.data.utils.SearchOperation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+import java.util.stream.Stream;
+
+/**
+ * In-memory trigram index over the lower-cased title and author of every book, answering the {@code MATCH}
+ * (substring) and {@code MATCH_END} (prefix) operations without scanning the table.
+ * <p>
+ * Books are mapped to dense internal document ids with one posting list of document ids per trigram. An update
+ * retires the old document and appends a new one, so posting lists stay sorted without being rewritten. Retired
+ * documents are skipped through the {@code live} bit set and purged once they outnumber the live ones. Candidates
+ * from the posting-list intersection are always verified against the stored value, so results are exact.
+ */
+@Component
+@Slf4j
+public class BookSearchIndex {
+
+    private static final int GRAM = 3;
+
+    private static final List<String> FIELDS = List.of(Constants.TITLE, Constants.AUTHOR);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, FieldIndex> fields = new HashMap<>();
+
+    private final Map<Long, Integer> docsByBook = new HashMap<>();
+
+    private final BitSet live = new BitSet();
+
+    private long[] books = new long[1024];
+
+    private int nextDoc;
+
+    private volatile boolean ready;
+
+    private final SearchResultCache searchResultCache;
+
+    public BookSearchIndex(SearchResultCache searchResultCache) {
+        this.searchResultCache = searchResultCache;
+        FIELDS.forEach(field -> fields.put(field, new FieldIndex()));
+    }
+
+    public static boolean supports(String field, SearchOperation operation) {
+        return FIELDS.contains(field)
+                && (operation == SearchOperation.MATCH || operation == SearchOperation.MATCH_END);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Replaces the whole index with the given books. The write lock is held throughout, so changes committed
+     * while the rebuild runs are applied after it, on top of the rebuilt state.
+     */
+    public void rebuild(Stream<Book> catalogue) {
+        lock.writeLock().lock();
+        try {
+            clear();
+            catalogue.forEach(this::index);
+            ready = true;
+            log.info("Search index built with {} books", docsByBook.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangeEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (event.getType() == BookChangeType.DELETED) {
+                retire(event.getBook().getId());
+            } else {
+                index(event.getBook());
+            }
+            if (nextDoc - docsByBook.size() > Math.max(1024, docsByBook.size())) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        searchResultCache.indexChanged();
+    }
+
+    /**
+     * Ids, in ascending order, of the books whose {@code field} matches {@code value} under {@code operation}.
+     */
+    public List<Long> search(String field, String value, SearchOperation operation) {
+
+        String needle = value.toLowerCase(Locale.ROOT);
+        boolean prefix = operation == SearchOperation.MATCH_END;
+
+        lock.readLock().lock();
+        try {
+            FieldIndex index = fields.get(field);
+            List<Long> result = new ArrayList<>();
+
+            if (needle.length() < GRAM) {
+                for (int doc = live.nextSetBit(0); doc >= 0; doc = live.nextSetBit(doc + 1)) {
+                    if (index.matches(doc, needle, prefix)) {
+                        result.add(books[doc]);
+                    }
+                }
+            } else {
+                index.candidates(needle, candidate -> {
+                    if (live.get(candidate) && index.matches(candidate, needle, prefix)) {
+                        result.add(books[candidate]);
+                    }
+                });
+            }
+
+            result.sort(Comparator.naturalOrder());
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void index(Book book) {
+        retire(book.getId());
+
+        int doc = nextDoc++;
+        if (doc == books.length) {
+            books = Arrays.copyOf(books, doc * 2);
+        }
+        books[doc] = book.getId();
+        docsByBook.put(book.getId(), doc);
+        live.set(doc);
+
+        fields.get(Constants.TITLE).add(doc, book.getTitle());
+        fields.get(Constants.AUTHOR).add(doc, book.getAuthor());
+    }
+
+    private void retire(Long bookId) {
+        Integer doc = docsByBook.remove(bookId);
+        if (doc != null) {
+            live.clear(doc);
+        }
+    }
+
+    private void compact() {
+        List<Book> remaining = new ArrayList<>(docsByBook.size());
+        for (int doc = live.nextSetBit(0); doc >= 0; doc = live.nextSetBit(doc + 1)) {
+            remaining.add(Book.builder()
+                    .id(books[doc])
+                    .title(fields.get(Constants.TITLE).values[doc])
+                    .author(fields.get(Constants.AUTHOR).values[doc])
+                    .build());
+        }
+        clear();
+        remaining.forEach(this::index);
+    }
+
+    private void clear() {
+        fields.replaceAll((field, index) -> new FieldIndex());
+        docsByBook.clear();
+        live.clear();
+        nextDoc = 0;
+    }
+
+    private static final class FieldIndex {
+
+        private final Map<String, IntPostingList> postings = new HashMap<>();
+
+        private String[] values = new String[1024];
+
+        void add(int doc, String value) {
+            if (doc >= values.length) {
+                values = Arrays.copyOf(values, Math.max(doc + 1, values.length * 2));
+            }
+            String normalized = value == null ? "" : value.toLowerCase(Locale.ROOT);
+            values[doc] = normalized;
+
+            for (String gram : grams(normalized)) {
+                postings.computeIfAbsent(gram, key -> new IntPostingList()).add(doc);
+            }
+        }
+
+        boolean matches(int doc, String needle, boolean prefix) {
+            String value = values[doc];
+            return prefix ? value.startsWith(needle) : value.contains(needle);
+        }
+
+        /**
+         * Intersects the posting lists of every trigram of {@code needle}, shortest first.
+         */
+        void candidates(String needle, IntConsumer consumer) {
+            Set<String> grams = grams(needle);
+            IntPostingList[] lists = new IntPostingList[grams.size()];
+            int i = 0;
+            for (String gram : grams) {
+                IntPostingList list = postings.get(gram);
+                if (list == null) {
+                    return;
+                }
+                lists[i++] = list;
+            }
+            Arrays.sort(lists, Comparator.comparingInt(IntPostingList::size));
+
+            int[] cursors = new int[lists.length];
+            IntPostingList shortest = lists[0];
+            next:
+            for (int j = 0; j < shortest.size(); j++) {
+                int doc = shortest.get(j);
+                for (int k = 1; k < lists.length; k++) {
+                    cursors[k] = lists[k].advance(cursors[k], doc);
+                    if (cursors[k] == lists[k].size()) {
+                        return;
+                    }
+                    if (lists[k].get(cursors[k]) != doc) {
+                        continue next;
+                    }
+                }
+                consumer.accept(doc);
+            }
+        }
+
+        private static Set<String> grams(String value) {
+            Set<String> grams = new LinkedHashSet<>();
+            for (int i = 0; i + GRAM <= value.length(); i++) {
+                grams.add(value.substring(i, i + GRAM));
+            }
+            return grams;
+        }
+    }
+}
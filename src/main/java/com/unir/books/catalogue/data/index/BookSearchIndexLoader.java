@@ -0,0 +1,39 @@
+package com.unir.books.catalogue.data.index;
+
+import com.unir.books.catalogue.data.BookRepository;
+import com.unir.books.catalogue.data.model.Book;
+import com.unir.books.catalogue.data.utils.SearchCriteria;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.stream.Stream;
+
+@Component
+@RequiredArgsConstructor
+public class BookSearchIndexLoader {
+
+    private final BookRepository repository;
+
+    private final BookSearchIndex index;
+
+    private final BookRankedIndex rankedIndex;
+
+    private final BookSuggestIndex suggestIndex;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void load() {
+        try (Stream<Book> books = repository.stream(new SearchCriteria<>())) {
+            index.rebuild(books);
+        }
+        try (Stream<Book> books = repository.stream(new SearchCriteria<>())) {
+            rankedIndex.rebuild(books);
+        }
+        try (Stream<Book> books = repository.stream(new SearchCriteria<>())) {
+            suggestIndex.rebuild(books);
+        }
+    }
+}
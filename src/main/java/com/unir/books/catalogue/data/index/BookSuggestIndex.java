@@ -0,0 +1,380 @@
+package com.unir.books.catalogue.data.index;
+
+import com.unir.books.catalogue.data.event.BookChangeEvent;
+import com.unir.books.catalogue.data.event.BookChangeType;
+import com.unir.books.catalogue.data.model.Book;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Autocomplete over the titles and authors of the visible books, kept in a compressed radix trie. Labels are
+ * normalized by {@link TextAnalyzer} and inserted once per word, so "sole" completes "Cien años de soledad" too.
+ * <p>
+ * Every node caches the best {@code max-results} suggestions below it, ordered by rating, so a lookup only walks
+ * the prefix and copies that list. Adding a suggestion offers it to the nodes on its path; removing one recomputes
+ * those nodes from their children.
+ */
+@Component
+@Slf4j
+public class BookSuggestIndex {
+
+    private static final Suggestion[] NONE = new Suggestion[0];
+
+    private static final Comparator<Suggestion> RANKING = Comparator.comparingInt(Suggestion::weight).reversed()
+            .thenComparingInt(suggestion -> suggestion.label().length())
+            .thenComparing(Suggestion::label)
+            .thenComparingLong(Suggestion::id);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Long, Suggestion> titles = new HashMap<>();
+
+    private final Map<Long, String> authorsByBook = new HashMap<>();
+
+    private final Map<String, Author> authors = new HashMap<>();
+
+    private Node root = new Node("");
+
+    private volatile boolean ready;
+
+    @Value("${catalogue.suggest.max-results:10}")
+    private int maxResults;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void rebuild(Stream<Book> catalogue) {
+        lock.writeLock().lock();
+        try {
+            root = new Node("");
+            titles.clear();
+            authorsByBook.clear();
+            authors.clear();
+            catalogue.forEach(this::add);
+            ready = true;
+            log.info("Suggest index built with {} titles and {} authors", titles.size(), authors.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangeEvent event) {
+        lock.writeLock().lock();
+        try {
+            remove(event.getBook().getId());
+            if (event.getType() != BookChangeType.DELETED) {
+                add(event.getBook());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The best {@code limit} completions of {@code prefix}, at most {@code max-results}.
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+
+        String key = normalize(prefix);
+
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            int i = 0;
+            while (i < key.length()) {
+                Node child = node.child(key.charAt(i));
+                if (child == null) {
+                    return List.of();
+                }
+                int common = commonPrefix(child.edge, key, i);
+                if (common < child.edge.length() && i + common < key.length()) {
+                    return List.of();
+                }
+                node = child;
+                i += common;
+            }
+            return List.of(Arrays.copyOf(node.top, Math.min(limit, node.top.length)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(Book book) {
+        if (Boolean.FALSE.equals(book.getVisible())) {
+            return;
+        }
+        int weight = book.getRating() == null ? 0 : book.getRating();
+
+        if (book.getTitle() != null) {
+            Suggestion title = new Suggestion(book.getId(), book.getTitle(), SuggestionType.TITLE, weight);
+            titles.put(book.getId(), title);
+            insertLabel(title);
+        }
+
+        if (book.getAuthor() != null) {
+            String key = normalize(book.getAuthor());
+            authorsByBook.put(book.getId(), key);
+            Author author = authors.computeIfAbsent(key, k -> new Author(book.getAuthor()));
+            author.weights.put(book.getId(), weight);
+            refresh(key, author);
+        }
+    }
+
+    private void remove(Long bookId) {
+        Suggestion title = titles.remove(bookId);
+        if (title != null) {
+            removeLabel(title);
+        }
+
+        String key = authorsByBook.remove(bookId);
+        if (key != null) {
+            Author author = authors.get(key);
+            author.weights.remove(bookId);
+            refresh(key, author);
+        }
+    }
+
+    /**
+     * Replaces the suggestion of an author after one of their books changed. It points to their best rated book.
+     */
+    private void refresh(String key, Author author) {
+
+        Suggestion best = null;
+        for (Map.Entry<Long, Integer> book : author.weights.entrySet()) {
+            if (best == null || book.getValue() > best.weight()
+                    || (book.getValue() == best.weight() && book.getKey() < best.id())) {
+                best = new Suggestion(book.getKey(), author.label, SuggestionType.AUTHOR, book.getValue());
+            }
+        }
+
+        if (best != null && best.equals(author.suggestion)) {
+            return;
+        }
+        if (author.suggestion != null) {
+            removeLabel(author.suggestion);
+        }
+        author.suggestion = best;
+        if (best != null) {
+            insertLabel(best);
+        } else {
+            authors.remove(key);
+        }
+    }
+
+    private void insertLabel(Suggestion suggestion) {
+        String label = normalize(suggestion.label());
+        for (int start : wordStarts(label)) {
+            insert(label.substring(start), suggestion);
+        }
+    }
+
+    private void removeLabel(Suggestion suggestion) {
+        String label = normalize(suggestion.label());
+        for (int start : wordStarts(label)) {
+            remove(label.substring(start), suggestion);
+        }
+    }
+
+    private void insert(String key, Suggestion suggestion) {
+
+        List<Node> path = new ArrayList<>();
+        path.add(root);
+        Node node = root;
+        int i = 0;
+        while (i < key.length()) {
+            Node child = node.child(key.charAt(i));
+            if (child == null) {
+                child = new Node(key.substring(i));
+                node.attach(child);
+                node = child;
+                path.add(node);
+                break;
+            }
+            int common = commonPrefix(child.edge, key, i);
+            if (common < child.edge.length()) {
+                child = node.split(child, common);
+            }
+            node = child;
+            path.add(node);
+            i += common;
+        }
+
+        node.terminals.add(suggestion);
+        for (Node step : path) {
+            step.offer(suggestion, maxResults);
+        }
+    }
+
+    private void remove(String key, Suggestion suggestion) {
+
+        List<Node> path = new ArrayList<>();
+        path.add(root);
+        Node node = root;
+        int i = 0;
+        while (i < key.length()) {
+            node = node.child(key.charAt(i));
+            i += node.edge.length();
+            path.add(node);
+        }
+        node.terminals.remove(suggestion);
+
+        for (int step = path.size() - 1; step > 0; step--) {
+            Node current = path.get(step);
+            if (current.terminals.isEmpty() && current.children.length == 0) {
+                path.get(step - 1).detach(current);
+            } else {
+                current.recompute(maxResults);
+            }
+        }
+        root.recompute(maxResults);
+    }
+
+    private static String normalize(String text) {
+        return String.join(" ", TextAnalyzer.tokens(text));
+    }
+
+    private static List<Integer> wordStarts(String label) {
+        List<Integer> starts = new ArrayList<>();
+        for (int i = 0; i < label.length(); i++) {
+            if (i == 0 || label.charAt(i - 1) == ' ') {
+                starts.add(i);
+            }
+        }
+        return starts;
+    }
+
+    private static int commonPrefix(String edge, String key, int from) {
+        int length = Math.min(edge.length(), key.length() - from);
+        int i = 0;
+        while (i < length && edge.charAt(i) == key.charAt(from + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static final class Author {
+
+        private final String label;
+
+        private final Map<Long, Integer> weights = new HashMap<>();
+
+        private Suggestion suggestion;
+
+        private Author(String label) {
+            this.label = label;
+        }
+    }
+
+    private static final class Node {
+
+        private String edge;
+
+        // Sorted by the first character of their edge
+        private Node[] children = new Node[0];
+
+        private final List<Suggestion> terminals = new ArrayList<>(1);
+
+        private Suggestion[] top = NONE;
+
+        private Node(String edge) {
+            this.edge = edge;
+        }
+
+        Node child(char first) {
+            int low = 0;
+            int high = children.length - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                char c = children[middle].edge.charAt(0);
+                if (c < first) {
+                    low = middle + 1;
+                } else if (c > first) {
+                    high = middle - 1;
+                } else {
+                    return children[middle];
+                }
+            }
+            return null;
+        }
+
+        void attach(Node child) {
+            int index = 0;
+            while (index < children.length && children[index].edge.charAt(0) < child.edge.charAt(0)) {
+                index++;
+            }
+            Node[] grown = new Node[children.length + 1];
+            System.arraycopy(children, 0, grown, 0, index);
+            grown[index] = child;
+            System.arraycopy(children, index, grown, index + 1, children.length - index);
+            children = grown;
+        }
+
+        void detach(Node child) {
+            List<Node> remaining = new ArrayList<>(Arrays.asList(children));
+            remaining.remove(child);
+            children = remaining.toArray(Node[]::new);
+        }
+
+        /**
+         * Splits the edge to {@code child} after {@code length} characters and returns the new middle node.
+         */
+        Node split(Node child, int length) {
+            Node middle = new Node(child.edge.substring(0, length));
+            child.edge = child.edge.substring(length);
+            middle.children = new Node[]{child};
+            middle.top = child.top;
+            for (int i = 0; i < children.length; i++) {
+                if (children[i] == child) {
+                    children[i] = middle;
+                }
+            }
+            return middle;
+        }
+
+        void offer(Suggestion suggestion, int max) {
+            for (Suggestion current : top) {
+                if (current == suggestion) {
+                    return;
+                }
+            }
+            if (top.length == max && RANKING.compare(suggestion, top[max - 1]) >= 0) {
+                return;
+            }
+            int index = 0;
+            while (index < top.length && RANKING.compare(top[index], suggestion) < 0) {
+                index++;
+            }
+            Suggestion[] next = new Suggestion[Math.min(max, top.length + 1)];
+            System.arraycopy(top, 0, next, 0, index);
+            next[index] = suggestion;
+            System.arraycopy(top, index, next, index + 1, next.length - index - 1);
+            top = next;
+        }
+
+        void recompute(int max) {
+            top = NONE;
+            for (Suggestion suggestion : terminals) {
+                offer(suggestion, max);
+            }
+            for (Node child : children) {
+                for (Suggestion suggestion : child.top) {
+                    offer(suggestion, max);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.unir.books.catalogue.data.index;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of document ids. Ids are appended in increasing order, so the list is always sorted.
+ */
+class IntPostingList {
+
+    private int[] docs = new int[4];
+    private int size;
+
+    void add(int doc) {
+        if (size == docs.length) {
+            docs = Arrays.copyOf(docs, size + (size >> 1));
+        }
+        docs[size++] = doc;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int get(int index) {
+        return docs[index];
+    }
+
+    /**
+     * Returns the index of {@code doc} or, if absent, of the first element greater than it, searching from
+     * {@code from} with exponential steps. Cheap when intersecting with a much shorter list.
+     */
+    int advance(int from, int doc) {
+        int bound = 1;
+        while (from + bound < size && docs[from + bound] < doc) {
+            bound <<= 1;
+        }
+        int index = Arrays.binarySearch(docs, from + (bound >> 1), Math.min(from + bound + 1, size), doc);
+        return index >= 0 ? index : -index - 1;
+    }
+}
@@ -0,0 +1,9 @@
+package com.unir.books.catalogue.data.index;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * A completion for the search box. For an author, {@code id} is the best rated of their books.
+ */
+public record Suggestion(long id, String label, SuggestionType type, @JsonIgnore int weight) {
+}
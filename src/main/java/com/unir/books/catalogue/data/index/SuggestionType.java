@@ -0,0 +1,6 @@
+package com.unir.books.catalogue.data.index;
+
+public enum SuggestionType {
+    TITLE,
+    AUTHOR,
+}
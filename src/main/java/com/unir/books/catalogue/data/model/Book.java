@@ -8,17 +8,25 @@ import lombok.*;
 import java.util.Date;
 
 @Entity
-@Table(name = "books")
+@Table(name = "books", indexes = {
+        @Index(name = "idx_books_category", columnList = Constants.CATEGORY),
+        @Index(name = "idx_books_isbn", columnList = Constants.ISBN),
+        @Index(name = "idx_books_published", columnList = Constants.PUBLISHED),
+        @Index(name = "idx_books_rating", columnList = Constants.RATING),
+        @Index(name = "idx_books_price", columnList = Constants.PRICE),
+        @Index(name = "idx_books_visible", columnList = Constants.VISIBLE)
+})
 @Getter
 @Setter
 @AllArgsConstructor
 @NoArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 @ToString
 public class Book {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "books_seq")
+    @SequenceGenerator(name = "books_seq", sequenceName = "books_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = Constants.TITLE, unique = true)
@@ -48,6 +56,19 @@ public class Book {
     @Column(name = Constants.STOCK)
     private Integer stock;
 
+    @Version
+    @Column(name = Constants.VERSION)
+    private Long version;
+
+    @Column(name = "last_modified")
+    private Date lastModified;
+
+
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        this.lastModified = new Date();
+    }
 
     public void update(BookDto bookDto) {
         this.title = bookDto.getTitle();
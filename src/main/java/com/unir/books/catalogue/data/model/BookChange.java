@@ -0,0 +1,51 @@
+package com.unir.books.catalogue.data.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import com.unir.books.catalogue.data.event.BookChangeType;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.util.Date;
+
+/**
+ * Outbox row for a committed write to a book. The id is the offset of the change in the change feed, and the
+ * payload is the book as JSON after the change (or before it, for a deletion).
+ */
+@Entity
+@Table(name = "book_changes", indexes = @Index(name = "idx_book_changes_changed_at", columnList = "changed_at"))
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@ToString
+@JsonPropertyOrder({"offset", "type", "bookId", "bookVersion", "changedAt", "book"})
+public class BookChange {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_changes_seq")
+    @SequenceGenerator(name = "book_changes_seq", sequenceName = "book_changes_seq", allocationSize = 50)
+    @JsonProperty("offset")
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type", nullable = false)
+    private BookChangeType type;
+
+    @Column(name = "book_id", nullable = false)
+    private Long bookId;
+
+    @Column(name = "book_version")
+    private Long bookVersion;
+
+    @Column(name = "changed_at", nullable = false)
+    private Date changedAt;
+
+    @JsonRawValue
+    @JsonProperty("book")
+    @Column(name = "payload", length = 4000)
+    private String payload;
+
+}
@@ -0,0 +1,24 @@
+package com.unir.books.catalogue.data.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Compact view of a book for listing pages. Read with a constructor projection, so only these columns are
+ * selected and no entity is hydrated.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookSummary {
+
+    private Long id;
+    private String title;
+    private String author;
+    private Double price;
+    private Integer rating;
+
+}
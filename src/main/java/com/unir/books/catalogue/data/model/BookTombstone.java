@@ -0,0 +1,32 @@
+package com.unir.books.catalogue.data.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.util.Date;
+
+/**
+ * Marks a deleted book and the version it had when deleted, so a replicated change to an older version of it is
+ * not applied after the delete and does not bring it back. Tombstones are small and kept for good: a peer may
+ * replay changes of any age when it catches up.
+ */
+@Entity
+@Table(name = "book_tombstones")
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@ToString
+public class BookTombstone {
+
+    @Id
+    private Long id;
+
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    @Column(name = "deleted_at", nullable = false)
+    private Date deletedAt;
+
+}
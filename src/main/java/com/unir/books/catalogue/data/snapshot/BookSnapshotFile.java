@@ -0,0 +1,246 @@
+package com.unir.books.catalogue.data.snapshot;
+
+import com.unir.books.catalogue.data.model.Book;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary snapshot of the books table.
+ * <p>
+ * Layout, big-endian: a header with the magic {@code BKSN} and the format version, one record per book, and a
+ * trailer with the number of records and the CRC32C of every preceding byte. A record starts with a 16-bit mask of
+ * the null fields, followed by the non-null fields in declaration order: longs for the id, version and dates,
+ * ints for rating and stock, a double for the price, a byte for visible and length-prefixed UTF-8 for text.
+ * <p>
+ * Files are written through a direct buffer to a temporary file that is atomically moved into place, and read
+ * through a read-only memory mapping after the checksum has been verified.
+ */
+public final class BookSnapshotFile {
+
+    private static final int MAGIC = 0x424B534E;
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int HEADER_BYTES = 8;
+
+    private static final int TRAILER_BYTES = 16;
+
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    private BookSnapshotFile() {
+    }
+
+    public static SnapshotInfo write(Stream<Book> books, Path path) throws IOException {
+
+        long start = System.nanoTime();
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            Writer writer = new Writer(channel);
+            writer.buffer.putInt(MAGIC).putInt(FORMAT_VERSION);
+
+            long[] count = new long[1];
+            books.forEach(book -> {
+                writer.write(book);
+                count[0]++;
+            });
+
+            writer.ensure(Long.BYTES);
+            writer.buffer.putLong(count[0]);
+            writer.flush();
+            long checksum = writer.crc.getValue();
+            channel.write(ByteBuffer.allocate(Long.BYTES).putLong(0, checksum));
+            channel.force(true);
+
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return new SnapshotInfo(path.toString(), count[0], Files.size(path), Long.toHexString(checksum),
+                    (System.nanoTime() - start) / 1_000_000);
+        } catch (UncheckedIOException e) {
+            Files.deleteIfExists(temporary);
+            throw e.getCause();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+    }
+
+    /**
+     * Verifies the snapshot and hands every book in it to {@code consumer}. Throws {@link IOException} without
+     * reading any book if the file is truncated, corrupt or in an unknown format.
+     */
+    public static SnapshotInfo read(Path path, Consumer<Book> consumer) throws IOException {
+
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+
+            long size = channel.size();
+            if (size < HEADER_BYTES + TRAILER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Invalid snapshot size " + size + " in " + path);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            long checksum = buffer.getLong((int) size - Long.BYTES);
+            CRC32C crc = new CRC32C();
+            crc.update(buffer.slice(0, (int) size - Long.BYTES));
+            if (crc.getValue() != checksum) {
+                throw new IOException("Checksum mismatch in snapshot " + path);
+            }
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                throw new IOException("Unknown snapshot format in " + path);
+            }
+
+            long expected = buffer.getLong((int) size - TRAILER_BYTES);
+            int end = (int) size - TRAILER_BYTES;
+            long count = 0;
+            while (buffer.position() < end) {
+                consumer.accept(read(buffer));
+                count++;
+            }
+            if (count != expected) {
+                throw new IOException("Snapshot " + path + " holds " + count + " books, expected " + expected);
+            }
+            return new SnapshotInfo(path.toString(), count, size, Long.toHexString(checksum),
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    private static Book read(ByteBuffer buffer) {
+        short nulls = buffer.getShort();
+        return Book.builder()
+                .id(isNull(nulls, 0) ? null : buffer.getLong())
+                .title(isNull(nulls, 1) ? null : string(buffer))
+                .author(isNull(nulls, 2) ? null : string(buffer))
+                .published(isNull(nulls, 3) ? null : new Date(buffer.getLong()))
+                .category(isNull(nulls, 4) ? null : string(buffer))
+                .isbn(isNull(nulls, 5) ? null : string(buffer))
+                .rating(isNull(nulls, 6) ? null : buffer.getInt())
+                .visible(isNull(nulls, 7) ? null : buffer.get() != 0)
+                .price(isNull(nulls, 8) ? null : buffer.getDouble())
+                .stock(isNull(nulls, 9) ? null : buffer.getInt())
+                .version(isNull(nulls, 10) ? null : buffer.getLong())
+                .lastModified(isNull(nulls, 11) ? null : new Date(buffer.getLong()))
+                .build();
+    }
+
+    private static boolean isNull(short nulls, int field) {
+        return (nulls & (1 << field)) != 0;
+    }
+
+    private static String string(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static final class Writer {
+
+        private final FileChannel channel;
+
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+
+        private final CRC32C crc = new CRC32C();
+
+        Writer(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void write(Book book) {
+            byte[] title = bytes(book.getTitle());
+            byte[] author = bytes(book.getAuthor());
+            byte[] category = bytes(book.getCategory());
+            byte[] isbn = bytes(book.getIsbn());
+            Object[] fields = {book.getId(), title, author, book.getPublished(), category, isbn, book.getRating(),
+                    book.getVisible(), book.getPrice(), book.getStock(), book.getVersion(), book.getLastModified()};
+
+            short nulls = 0;
+            int length = Short.BYTES;
+            for (int i = 0; i < fields.length; i++) {
+                if (fields[i] == null) {
+                    nulls |= (short) (1 << i);
+                } else {
+                    length += fields[i] instanceof byte[] text ? Integer.BYTES + text.length : Long.BYTES;
+                }
+            }
+            ensure(length);
+
+            buffer.putShort(nulls);
+            if (book.getId() != null) {
+                buffer.putLong(book.getId());
+            }
+            put(title);
+            put(author);
+            if (book.getPublished() != null) {
+                buffer.putLong(book.getPublished().getTime());
+            }
+            put(category);
+            put(isbn);
+            if (book.getRating() != null) {
+                buffer.putInt(book.getRating());
+            }
+            if (book.getVisible() != null) {
+                buffer.put((byte) (book.getVisible() ? 1 : 0));
+            }
+            if (book.getPrice() != null) {
+                buffer.putDouble(book.getPrice());
+            }
+            if (book.getStock() != null) {
+                buffer.putInt(book.getStock());
+            }
+            if (book.getVersion() != null) {
+                buffer.putLong(book.getVersion());
+            }
+            if (book.getLastModified() != null) {
+                buffer.putLong(book.getLastModified().getTime());
+            }
+        }
+
+        void ensure(int length) {
+            if (length > buffer.capacity()) {
+                throw new IllegalArgumentException("Book record of " + length + " bytes does not fit the buffer");
+            }
+            if (buffer.remaining() < length) {
+                flush();
+            }
+        }
+
+        void flush() {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            try {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            buffer.clear();
+        }
+
+        private void put(byte[] text) {
+            if (text != null) {
+                buffer.putInt(text.length).put(text);
+            }
+        }
+
+        private static byte[] bytes(String value) {
+            return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+}
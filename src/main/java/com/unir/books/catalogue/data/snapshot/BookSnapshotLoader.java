@@ -0,0 +1,41 @@
+package com.unir.books.catalogue.data.snapshot;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Restores the latest snapshot, if any, before the application reports ready, so derived state such as the search
+ * index is built from it. A missing or invalid snapshot leaves the seed data in place.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+@Slf4j
+public class BookSnapshotLoader implements ApplicationRunner {
+
+    private final BookSnapshotStore store;
+
+    @Value("${catalogue.snapshot.load-on-startup:true}")
+    private boolean loadOnStartup;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!loadOnStartup || !Files.isRegularFile(store.getPath())) {
+            return;
+        }
+        try {
+            store.restore();
+        } catch (IOException e) {
+            log.warn("Snapshot {} not restored, keeping the seed data", store.getPath(), e);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.unir.books.catalogue.data.snapshot;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@AllArgsConstructor
+@ToString
+public class SnapshotInfo {
+
+    private final String path;
+    private final long books;
+    private final long bytes;
+    private final String checksum;
+    private final long durationMillis;
+
+}
@@ -0,0 +1,33 @@
+package com.unir.books.catalogue.data.utils;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Date;
+
+/**
+ * Filters of a catalogue search, as received from the client. {@code null} values are not applied.
+ */
+@Getter
+@Setter
+@Builder(toBuilder = true)
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookFilter {
+
+    private String title;
+    private String author;
+    private String category;
+    private String isbn;
+    private Date publishedDate;
+    private Double price;
+    private Double minPrice;
+    private Double maxPrice;
+    private Integer rating;
+    private Integer maxRating;
+    private Boolean visible;
+
+}
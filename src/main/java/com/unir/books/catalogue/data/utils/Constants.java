@@ -1,8 +1,11 @@
 package com.unir.books.catalogue.data.utils;
 
+import java.util.List;
+
 public class Constants {
 
     //Constants for db entity fields
+    public static final String ID = "id";
     public static final String TITLE = "title";
     public static final String AUTHOR = "author";
     public static final String PUBLISHED = "published";
@@ -12,5 +15,11 @@ public class Constants {
     public static final String VISIBLE = "visible";
     public static final String PRICE = "price";
     public static final String STOCK = "stock";
+    public static final String VERSION = "version";
+    public static final String LAST_MODIFIED = "lastModified";
+
+    //Fields that can be selected in a projection
+    public static final List<String> BOOK_FIELDS =
+            List.of(ID, TITLE, AUTHOR, PUBLISHED, CATEGORY, ISBN, RATING, VISIBLE, PRICE, STOCK, VERSION, LAST_MODIFIED);
 
 }
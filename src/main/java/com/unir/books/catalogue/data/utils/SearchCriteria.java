@@ -3,12 +3,18 @@ package com.unir.books.catalogue.data.utils;
 import com.unir.books.catalogue.data.model.Book;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
 import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
 import org.springframework.data.jpa.domain.Specification;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 public class SearchCriteria<Book> implements Specification<Book> {
 
@@ -18,39 +24,82 @@ public class SearchCriteria<Book> implements Specification<Book> {
         list.add(criteria);
     }
 
+    public List<SearchStatement> getStatements() {
+        return Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Order-independent "key:OPERATION" list of the statements, without values. There are few distinct shapes,
+     * so it is safe to use as a metric tag or as a key for per-shape data.
+     */
+    public String toShape() {
+        return list.stream()
+                .map(statement -> statement.getKey() + ":" + statement.getOperation())
+                .sorted()
+                .collect(Collectors.joining(","));
+    }
+
+    /**
+     * Order-independent key of the statement set, suitable for caching the results of this criteria.
+     */
+    public String toNormalizedKey() {
+        return list.stream()
+                .map(SearchStatement::toNormalizedString)
+                .sorted()
+                .collect(Collectors.joining("&"));
+    }
+
     @Override
     public Predicate toPredicate(Root<Book> root, CriteriaQuery<?> query, CriteriaBuilder builder) {
 
-        List<Predicate> predicates = new LinkedList<>();
-        for (SearchStatement criteria : list) {
-            if (criteria.getOperation().equals(SearchOperation.GREATER_THAN)) {
-                predicates.add(builder.greaterThan(
-                        root.get(criteria.getKey()), criteria.getValue().toString()));
-            } else if (criteria.getOperation().equals(SearchOperation.LESS_THAN)) {
-                predicates.add(builder.lessThan(
-                        root.get(criteria.getKey()), criteria.getValue().toString()));
-            } else if (criteria.getOperation().equals(SearchOperation.GREATER_THAN_EQUAL)) {
-                predicates.add(builder.greaterThanOrEqualTo(
-                        root.get(criteria.getKey()), criteria.getValue().toString()));
-            } else if (criteria.getOperation().equals(SearchOperation.LESS_THAN_EQUAL)) {
-                predicates.add(builder.lessThanOrEqualTo(
-                        root.get(criteria.getKey()), criteria.getValue().toString()));
-            } else if (criteria.getOperation().equals(SearchOperation.NOT_EQUAL)) {
-                predicates.add(builder.notEqual(
-                        root.get(criteria.getKey()), criteria.getValue()));
-            } else if (criteria.getOperation().equals(SearchOperation.EQUAL)) {
-                predicates.add(builder.equal(
-                        root.get(criteria.getKey()), criteria.getValue()));
-            } else if (criteria.getOperation().equals(SearchOperation.MATCH)) {
-                predicates.add(builder.like(
-                        builder.lower(root.get(criteria.getKey())),
-                        "%" + criteria.getValue().toString().toLowerCase() + "%"));
-            } else if (criteria.getOperation().equals(SearchOperation.MATCH_END)) {
-                predicates.add(builder.like(
-                        builder.lower(root.get(criteria.getKey())),
-                        criteria.getValue().toString().toLowerCase() + "%"));
-            }
+        List<Predicate> predicates = new ArrayList<>(list.size());
+        for (SearchStatement statement : list) {
+            predicates.add(toPredicate(statement, root, builder));
         }
         return builder.and(predicates.toArray(new Predicate[0]));
     }
-}
\ No newline at end of file
+
+    /**
+     * Binds the value with the Java type of the attribute, so comparisons are done by the database on the column
+     * type and can use its index.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T extends Comparable<? super T>> Predicate toPredicate(SearchStatement statement, Root<?> root,
+                                                                         CriteriaBuilder builder) {
+        Path<T> path = root.get(statement.getKey());
+        Object value = statement.getValue();
+
+        return switch (statement.getOperation()) {
+            case GREATER_THAN -> builder.greaterThan(path, typed(path.getJavaType(), value));
+            case LESS_THAN -> builder.lessThan(path, typed(path.getJavaType(), value));
+            case GREATER_THAN_EQUAL -> builder.greaterThanOrEqualTo(path, typed(path.getJavaType(), value));
+            case LESS_THAN_EQUAL -> builder.lessThanOrEqualTo(path, typed(path.getJavaType(), value));
+            case NOT_EQUAL -> builder.notEqual(path, typed(path.getJavaType(), value));
+            case EQUAL -> builder.equal(path, typed(path.getJavaType(), value));
+            case MATCH -> builder.like(builder.lower(root.get(statement.getKey())),
+                    "%" + value.toString().toLowerCase() + "%");
+            case MATCH_END -> builder.like(builder.lower(root.get(statement.getKey())),
+                    value.toString().toLowerCase() + "%");
+            case IN -> path.in(((Collection<?>) value).stream().map(item -> typed(path.getJavaType(), item)).toList());
+        };
+    }
+
+    /**
+     * The value converted to the given attribute type, so it is bound with the column type.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T typed(Class<? extends T> type, Object value) {
+        if (type.isInstance(value) || (value instanceof Date && Date.class.isAssignableFrom(type))) {
+            return (T) value;
+        } else if (value instanceof Number number) {
+            if (type == Integer.class) {
+                return (T) Integer.valueOf(number.intValue());
+            } else if (type == Long.class) {
+                return (T) Long.valueOf(number.longValue());
+            } else if (type == Double.class) {
+                return (T) Double.valueOf(number.doubleValue());
+            }
+        }
+        throw new IllegalArgumentException("Invalid value " + value + " for type " + type.getSimpleName());
+    }
+}
@@ -9,4 +9,5 @@ public enum SearchOperation {
     EQUAL,
     MATCH,
     MATCH_END,
+    IN,
 }
@@ -4,6 +4,9 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.util.Date;
+import java.util.Locale;
+
 @AllArgsConstructor
 @Getter
 @Setter
@@ -12,4 +15,19 @@ public class SearchStatement {
     private String key;
     private Object value;
     private SearchOperation operation;
+
+    /**
+     * Canonical "key:operation:value" form, equal for statements that select the same rows.
+     */
+    public String toNormalizedString() {
+        String normalized;
+        if (value instanceof Date date) {
+            normalized = Long.toString(date.getTime());
+        } else if (operation == SearchOperation.MATCH || operation == SearchOperation.MATCH_END) {
+            normalized = value.toString().toLowerCase(Locale.ROOT);
+        } else {
+            normalized = String.valueOf(value);
+        }
+        return key + ":" + operation + ":" + normalized;
+    }
 }
@@ -0,0 +1,111 @@
+package com.unir.books.catalogue.service;
+
+import com.unir.books.catalogue.config.ReplicaRoutingDataSource;
+import com.unir.books.catalogue.controller.model.BookChangesPage;
+import com.unir.books.catalogue.data.BookChangeLog;
+import com.unir.books.catalogue.data.model.BookChange;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Long-poll access to the {@link BookChangeLog}. A poll with no pending changes parks as a future instead of a
+ * thread and completes as soon as a change is committed, or empty when the wait expires. Commits only schedule a
+ * dispatch, coalesced on a single thread, which reads the log once per distinct offset being waited on. Dispatches
+ * read the primary, where the commit that triggered them is already visible.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BookChangeFeed {
+
+    private final BookChangeLog changeLog;
+
+    private final Set<Waiter> waiters = ConcurrentHashMap.newKeySet();
+
+    private final AtomicBoolean dispatchScheduled = new AtomicBoolean();
+
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("book-change-feed").daemon().factory());
+
+    @PostConstruct
+    void subscribe() {
+        changeLog.subscribe(this::changed);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        dispatcher.shutdownNow();
+    }
+
+    /**
+     * Changes after {@code after}, waiting up to {@code wait} for one if there are none yet. Returns {@code null}
+     * if changes after that offset have already been purged and the consumer has to reload the catalogue.
+     */
+    public CompletableFuture<BookChangesPage> poll(long after, int limit, Duration wait) {
+
+        if (!changeLog.isAvailable(after)) {
+            return null;
+        }
+
+        List<BookChange> changes = changeLog.read(after, limit);
+        if (!changes.isEmpty() || wait.isZero()) {
+            return CompletableFuture.completedFuture(page(changes, after));
+        }
+
+        Waiter waiter = new Waiter(after, limit, new CompletableFuture<>());
+        waiters.add(waiter);
+        waiter.future()
+                .completeOnTimeout(page(List.of(), after), wait.toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((page, error) -> waiters.remove(waiter));
+
+        // A change committed between the read above and the registration would not wake this waiter otherwise
+        changed();
+        return waiter.future();
+    }
+
+    private void changed() {
+        if (!waiters.isEmpty() && dispatchScheduled.compareAndSet(false, true)) {
+            dispatcher.execute(this::dispatch);
+        }
+    }
+
+    private void dispatch() {
+        dispatchScheduled.set(false);
+        try {
+            int batch = waiters.stream().mapToInt(Waiter::limit).max().orElse(1);
+            Map<Long, List<BookChange>> reads = new HashMap<>();
+            for (Waiter waiter : waiters) {
+                List<BookChange> changes = reads.computeIfAbsent(waiter.after(),
+                        after -> ReplicaRoutingDataSource.onPrimary(() -> changeLog.read(after, batch)));
+                if (!changes.isEmpty()) {
+                    waiter.future().complete(page(changes.subList(0, Math.min(waiter.limit(), changes.size())),
+                            waiter.after()));
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not dispatch book changes to waiting consumers", e);
+        }
+    }
+
+    private static BookChangesPage page(List<BookChange> changes, long after) {
+        return new BookChangesPage(changes, changes.isEmpty() ? after : changes.get(changes.size() - 1).getId());
+    }
+
+    private record Waiter(long after, int limit, CompletableFuture<BookChangesPage> future) {
+    }
+}
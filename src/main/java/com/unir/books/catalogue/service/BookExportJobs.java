@@ -0,0 +1,231 @@
+package com.unir.books.catalogue.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.unir.books.catalogue.controller.model.ExportFormat;
+import com.unir.books.catalogue.controller.model.ExportJob;
+import com.unir.books.catalogue.controller.model.ExportStatus;
+import com.unir.books.catalogue.data.model.Book;
+import com.unir.books.catalogue.data.utils.BookFilter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Runs catalogue exports in the background. Each job streams the books through a forward-only cursor and encodes
+ * them, gzip-compressed on the fly, into a file that is then served as is. Jobs run on a small dedicated pool with
+ * a bounded queue, so at most {@code threads} database connections are ever busy exporting, and neither the rows
+ * nor the encoded output are held in memory.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BookExportJobs {
+
+    private static final String FILE_PREFIX = "books-";
+
+    private static final String CSV_HEADER = "id,title,author,published,category,isbn,rating,visible,price,stock,"
+            + "version,lastModified\n";
+
+    private final BooksCatalogueService service;
+
+    private final ObjectMapper objectMapper;
+
+    private final Map<String, ExportJob> jobs = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor executor;
+
+    @Value("${catalogue.export.path:exports}")
+    private Path directory;
+
+    @Value("${catalogue.export.threads:1}")
+    private int threads;
+
+    @Value("${catalogue.export.max-queued:10}")
+    private int maxQueued;
+
+    @Value("${catalogue.export.retention:1h}")
+    private Duration retention;
+
+    @PostConstruct
+    void start() throws IOException {
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxQueued), Thread.ofPlatform().name("book-export-", 0).daemon().factory());
+
+        // Jobs do not survive a restart, so their files would never be served or purged
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, FILE_PREFIX + "*")) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Queues an export of the whole catalogue. Returns {@code null} if too many exports are already queued.
+     */
+    public ExportJob start(ExportFormat format) {
+
+        ExportJob job = new ExportJob(UUID.randomUUID().toString(), format);
+        jobs.put(job.getId(), job);
+        try {
+            executor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            return null;
+        }
+        return job;
+    }
+
+    public ExportJob get(String jobId) {
+        return jobs.get(jobId);
+    }
+
+    @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.MINUTES)
+    public void purge() {
+
+        long expired = System.currentTimeMillis() - retention.toMillis();
+        jobs.values().removeIf(job -> {
+            if (job.getCompletedAt() == null || job.getCompletedAt().getTime() > expired) {
+                return false;
+            }
+            if (job.getFile() != null) {
+                try {
+                    Files.deleteIfExists(job.getFile());
+                } catch (IOException e) {
+                    log.warn("Export file {} could not be deleted", job.getFile(), e);
+                }
+            }
+            return true;
+        });
+    }
+
+    private void run(ExportJob job) {
+
+        job.setStatus(ExportStatus.RUNNING);
+        String name = FILE_PREFIX + job.getId() + "." + job.getFormat().name().toLowerCase(Locale.ROOT) + ".gz";
+        Path file = directory.resolve(name);
+        Path partial = directory.resolve(name + ".part");
+
+        try {
+            try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(partial), 64 * 1024)) {
+                if (job.getFormat() == ExportFormat.CSV) {
+                    writeCsv(job, output);
+                } else {
+                    writeNdjson(job, output);
+                }
+            }
+            Files.move(partial, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+            job.setFile(file);
+            job.setBytes(Files.size(file));
+            job.setStatus(ExportStatus.COMPLETED);
+            log.info("Export {} completed with {} books in {} bytes", job.getId(), job.getRows(), job.getBytes());
+        } catch (IOException | RuntimeException e) {
+            log.error("Export {} failed", job.getId(), e);
+            job.setError(e.getMessage());
+            job.setStatus(ExportStatus.FAILED);
+            try {
+                Files.deleteIfExists(partial);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+        } finally {
+            job.setCompletedAt(new Date());
+        }
+    }
+
+    private void writeNdjson(ExportJob job, OutputStream output) throws IOException {
+        try (SequenceWriter writer = objectMapper.writer().withRootValueSeparator("\n").writeValues(output)) {
+            export(job, book -> writer.write(book));
+        }
+    }
+
+    private void writeCsv(ExportJob job, OutputStream output) throws IOException {
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), 64 * 1024)) {
+            writer.write(CSV_HEADER);
+            export(job, book -> {
+                writer.write(String.valueOf(book.getId()));
+                csv(writer, book.getTitle());
+                csv(writer, book.getAuthor());
+                csv(writer, book.getPublished() == null ? null : book.getPublished().toInstant().toString());
+                csv(writer, book.getCategory());
+                csv(writer, book.getIsbn());
+                csv(writer, book.getRating());
+                csv(writer, book.getVisible());
+                csv(writer, book.getPrice());
+                csv(writer, book.getStock());
+                csv(writer, book.getVersion());
+                csv(writer, book.getLastModified() == null ? null : book.getLastModified().toInstant().toString());
+                writer.write('\n');
+            });
+        }
+    }
+
+    private void export(ExportJob job, BookWriter writer) {
+        service.streamBooks(BookFilter.builder().build(), book -> {
+            try {
+                writer.write(book);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            job.setRows(job.getRows() + 1);
+        });
+    }
+
+    /**
+     * Writes a field preceded by its separator, quoted as RFC 4180 requires when it holds a comma, quote or line
+     * break. Nulls are written as empty fields.
+     */
+    private static void csv(Writer writer, Object value) throws IOException {
+        writer.write(',');
+        if (value == null) {
+            return;
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            writer.write(text);
+        } else {
+            writer.write('"');
+            writer.write(text.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+
+    @FunctionalInterface
+    private interface BookWriter {
+        void write(Book book) throws IOException;
+    }
+}
@@ -0,0 +1,150 @@
+package com.unir.books.catalogue.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.StdDateFormat;
+import com.unir.books.catalogue.data.model.Book;
+import com.unir.books.catalogue.data.utils.Constants;
+import lombok.RequiredArgsConstructor;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.Date;
+import java.util.Objects;
+
+/**
+ * Applies an RFC 7386 merge patch directly to a {@link Book}, reading the patch tokens once with a streaming
+ * parser. Every field is parsed and validated into a staging copy before anything is written, so an invalid patch
+ * leaves the target untouched. All book fields are mandatory, so {@code null} (removal) is rejected for them.
+ */
+@Component
+@RequiredArgsConstructor
+public class BookMergePatcher {
+
+    private final ObjectMapper objectMapper;
+
+    public void apply(String patch, Book target) throws IOException {
+
+        Book changes = new Book();
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(patch)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("A merge patch for a book must be a JSON object");
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+
+                switch (field) {
+                    case Constants.ID -> {
+                        if (value != JsonToken.VALUE_NUMBER_INT || !Objects.equals(parser.getLongValue(), target.getId())) {
+                            throw new IllegalArgumentException("The id of a book cannot be changed");
+                        }
+                    }
+                    case Constants.VERSION -> {
+                        if (value != JsonToken.VALUE_NUMBER_INT) {
+                            throw new IllegalArgumentException("Invalid value for " + field);
+                        }
+                        if (!Objects.equals(parser.getLongValue(), target.getVersion())) {
+                            throw new ObjectOptimisticLockingFailureException(Book.class, target.getId());
+                        }
+                    }
+                    case Constants.LAST_MODIFIED -> {
+                        // Maintained by the server, accepted so clients can send back a book as they read it
+                    }
+                    case Constants.TITLE -> changes.setTitle(text(parser, value, field));
+                    case Constants.AUTHOR -> changes.setAuthor(text(parser, value, field));
+                    case Constants.CATEGORY -> changes.setCategory(text(parser, value, field));
+                    case Constants.ISBN -> changes.setIsbn(text(parser, value, field));
+                    case Constants.PUBLISHED -> changes.setPublished(date(parser, value, field));
+                    case Constants.RATING -> changes.setRating(integer(parser, value, field, 1, 5));
+                    case Constants.STOCK -> changes.setStock(integer(parser, value, field, 0, Integer.MAX_VALUE));
+                    case Constants.PRICE -> changes.setPrice(price(parser, value, field));
+                    case Constants.VISIBLE -> changes.setVisible(bool(value, field));
+                    default -> throw new IllegalArgumentException("Unknown field " + field);
+                }
+            }
+
+            if (parser.currentToken() != JsonToken.END_OBJECT || parser.nextToken() != null) {
+                throw new IllegalArgumentException("Malformed merge patch");
+            }
+        }
+
+        if (changes.getTitle() != null) {
+            target.setTitle(changes.getTitle());
+        }
+        if (changes.getAuthor() != null) {
+            target.setAuthor(changes.getAuthor());
+        }
+        if (changes.getCategory() != null) {
+            target.setCategory(changes.getCategory());
+        }
+        if (changes.getIsbn() != null) {
+            target.setIsbn(changes.getIsbn());
+        }
+        if (changes.getPublished() != null) {
+            target.setPublished(changes.getPublished());
+        }
+        if (changes.getRating() != null) {
+            target.setRating(changes.getRating());
+        }
+        if (changes.getStock() != null) {
+            target.setStock(changes.getStock());
+        }
+        if (changes.getPrice() != null) {
+            target.setPrice(changes.getPrice());
+        }
+        if (changes.getVisible() != null) {
+            target.setVisible(changes.getVisible());
+        }
+    }
+
+    private static String text(JsonParser parser, JsonToken value, String field) throws IOException {
+        if (value != JsonToken.VALUE_STRING || parser.getText().isBlank()) {
+            throw new IllegalArgumentException("Invalid value for " + field);
+        }
+        return parser.getText();
+    }
+
+    private static Date date(JsonParser parser, JsonToken value, String field) throws IOException {
+        if (value == JsonToken.VALUE_NUMBER_INT) {
+            return new Date(parser.getLongValue());
+        } else if (value == JsonToken.VALUE_STRING) {
+            try {
+                return new StdDateFormat().parse(parser.getText());
+            } catch (ParseException e) {
+                throw new IllegalArgumentException("Invalid value for " + field, e);
+            }
+        }
+        throw new IllegalArgumentException("Invalid value for " + field);
+    }
+
+    private static Integer integer(JsonParser parser, JsonToken value, String field, int min, int max) throws IOException {
+        if (value != JsonToken.VALUE_NUMBER_INT || parser.getNumberType() != JsonParser.NumberType.INT
+                || parser.getIntValue() < min || parser.getIntValue() > max) {
+            throw new IllegalArgumentException("Invalid value for " + field);
+        }
+        return parser.getIntValue();
+    }
+
+    private static Double price(JsonParser parser, JsonToken value, String field) throws IOException {
+        if ((value != JsonToken.VALUE_NUMBER_INT && value != JsonToken.VALUE_NUMBER_FLOAT)
+                || parser.getDoubleValue() < 0 || Double.isInfinite(parser.getDoubleValue())) {
+            throw new IllegalArgumentException("Invalid value for " + field);
+        }
+        return parser.getDoubleValue();
+    }
+
+    private static Boolean bool(JsonToken value, String field) {
+        if (value == JsonToken.VALUE_TRUE) {
+            return Boolean.TRUE;
+        } else if (value == JsonToken.VALUE_FALSE) {
+            return Boolean.FALSE;
+        }
+        throw new IllegalArgumentException("Invalid value for " + field);
+    }
+}
@@ -0,0 +1,304 @@
+package com.unir.books.catalogue.service;
+
+import com.unir.books.catalogue.controller.model.ReplicatedChange;
+import com.unir.books.catalogue.controller.model.ReplicationBatch;
+import com.unir.books.catalogue.data.BookChangeLog;
+import com.unir.books.catalogue.data.BookRepository;
+import com.unir.books.catalogue.data.event.BookChangeType;
+import com.unir.books.catalogue.data.model.Book;
+import com.unir.books.catalogue.data.model.BookChange;
+import com.unir.books.catalogue.data.model.BookTombstone;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.serviceregistry.Registration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Sends the changes written through this instance to its peers, which keep a database of their own. Peers are
+ * the other instances of this service registered in Eureka, or a static list for running several instances
+ * locally.
+ * <p>
+ * The offsets of the {@link BookChangeLog} act as sequence numbers. Each peer has a cursor with the last offset
+ * it acknowledged, and every push carries the offset it follows. A peer that missed changes, for instance after a
+ * restart, answers with the offset it actually has and the cursor moves back there, so gaps are filled from the
+ * log rather than lost. A peer that needs changes already purged from the log is resynchronized instead: it is
+ * sent every book and tombstone, and then the log from the offset that copy covers. Pushes are batched: after a
+ * commit the sender waits {@code batch-delay} for more changes, and failed peers are retried every
+ * {@code retry-interval}.
+ * <p>
+ * Instances resolve concurrent writes to the same book in {@link BookRepository#replicate}, where the newest
+ * version wins whole. Stock reservations are not merged, so they are only consistent when every stock change of
+ * the catalogue goes through a single writer instance.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+@RequiredArgsConstructor
+@Slf4j
+public class BookReplicationPublisher implements ApplicationRunner {
+
+    public static final String EXPECTED_OFFSET_HEADER = "X-Expected-Offset";
+
+    // Ids generated by each instance, so creates on different instances never clash
+    private static final long ID_RANGE = 1_000_000_000_000L;
+
+    private static final int MAX_PUSHES_PER_PEER = 100;
+
+    private final BookChangeLog changeLog;
+
+    private final BookRepository repository;
+
+    private final ObjectProvider<DiscoveryClient> discoveryClient;
+
+    private final ObjectProvider<Registration> registration;
+
+    private final RestClient.Builder restClientBuilder;
+
+    private final Map<String, Long> cursors = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean pushScheduled = new AtomicBoolean();
+
+    private ScheduledExecutorService sender;
+
+    private RestClient restClient;
+
+    private String origin;
+
+    @Value("${catalogue.replication.enabled:false}")
+    private boolean enabled;
+
+    @Value("${catalogue.replication.node-index:0}")
+    private int nodeIndex;
+
+    @Value("${catalogue.replication.peers:}")
+    private List<String> staticPeers;
+
+    @Value("${catalogue.replication.batch-delay:20ms}")
+    private Duration batchDelay;
+
+    @Value("${catalogue.replication.max-batch:500}")
+    private int maxBatch;
+
+    @Value("${catalogue.replication.retry-interval:1s}")
+    private Duration retryInterval;
+
+    @Value("${catalogue.replication.timeout:2s}")
+    private Duration timeout;
+
+    @Value("${spring.application.name}")
+    private String serviceId;
+
+    @Value("${server.port:8080}")
+    private int port;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Identifies this instance and run. Offsets restart with the in-memory database, so a restarted instance is a
+     * new origin for its peers.
+     */
+    public String getOrigin() {
+        return origin;
+    }
+
+    public Map<String, Long> getCursors() {
+        return Map.copyOf(cursors);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+
+        // Runs after the snapshot restore, which may have moved the sequence into another instance's range
+        repository.reserveIds(nodeIndex * ID_RANGE, (nodeIndex + 1) * ID_RANGE);
+
+        Registration self = registration.getIfAvailable();
+        origin = (self != null ? self.getInstanceId() : serviceId + ":" + port)
+                + "-" + Long.toString(System.currentTimeMillis(), 36);
+
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(timeout);
+        requestFactory.setReadTimeout(timeout);
+        restClient = restClientBuilder.requestFactory(requestFactory).build();
+
+        sender = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("book-replication").daemon().factory());
+        sender.scheduleWithFixedDelay(this::pushAll, retryInterval.toMillis(), retryInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+        changeLog.subscribe(this::changed);
+        log.info("Replicating book changes as {} with ids from {}", origin, nodeIndex * ID_RANGE);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (sender != null) {
+            sender.shutdownNow();
+        }
+    }
+
+    private void changed() {
+        if (pushScheduled.compareAndSet(false, true)) {
+            sender.schedule(() -> {
+                pushScheduled.set(false);
+                pushAll();
+            }, batchDelay.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void pushAll() {
+        for (String peer : peers()) {
+            try {
+                push(peer);
+            } catch (RestClientException e) {
+                log.debug("Peer {} unreachable, retrying in {}: {}", peer, retryInterval, e.getMessage());
+            } catch (RuntimeException e) {
+                log.error("Error replicating book changes to {}", peer, e);
+            }
+        }
+    }
+
+    /**
+     * Sends the peer every change after its cursor, one batch at a time. A new peer starts from the beginning of
+     * the log and skips what it already has.
+     */
+    private void push(String peer) {
+
+        for (int i = 0; i < MAX_PUSHES_PER_PEER; i++) {
+            long after = cursors.getOrDefault(peer, 0L);
+            if (!changeLog.isAvailable(after)) {
+                resync(peer, after);
+                continue;
+            }
+
+            List<BookChange> changes = changeLog.read(after, maxBatch);
+            if (changes.isEmpty()) {
+                return;
+            }
+            long next = changes.get(changes.size() - 1).getId();
+
+            if (send(peer, new ReplicationBatch<>(origin, after, next, changes))) {
+                cursors.put(peer, next);
+            }
+        }
+    }
+
+    /**
+     * Sends the peer every book and tombstone in id order, and moves its cursor to the log offset they cover once
+     * the last page is acknowledged. The offset is read first, so every change up to it is in the pages; later
+     * ones may be sent twice, which the peer tolerates.
+     */
+    private void resync(String peer, long after) {
+
+        long head = changeLog.head();
+        long position = 0;
+        while (true) {
+            List<Book> books = repository.getBooksAfter(position, maxBatch);
+            List<BookTombstone> tombstones = repository.getTombstonesAfter(position, maxBatch);
+
+            // Merged in id order; a book deleted and then brought back by a newer change has both, tombstone first
+            List<ReplicatedChange> changes = new ArrayList<>(maxBatch + 1);
+            long next = position;
+            int b = 0;
+            int t = 0;
+            while (b < books.size() || t < tombstones.size()) {
+                boolean tombstone = b == books.size()
+                        || (t < tombstones.size() && tombstones.get(t).getId() <= books.get(b).getId());
+                long id = tombstone ? tombstones.get(t).getId() : books.get(b).getId();
+                // Pages end between ids, never between the tombstone and the book of one id
+                if (changes.size() >= maxBatch && id != next) {
+                    break;
+                }
+                if (tombstone) {
+                    changes.add(new ReplicatedChange(0, BookChangeType.DELETED,
+                            Book.builder().id(id).version(tombstones.get(t++).getVersion()).build()));
+                } else {
+                    changes.add(new ReplicatedChange(0, BookChangeType.SAVED, books.get(b++)));
+                }
+                next = id;
+            }
+
+            boolean last = b == books.size() && books.size() < maxBatch
+                    && t == tombstones.size() && tombstones.size() < maxBatch;
+            if (!send(peer, new ReplicationBatch<>(origin, position, next, changes, true, last ? head : null))) {
+                return;
+            }
+            // Logged once the peer answers, not on every retry while it is down
+            if (position == 0) {
+                log.warn("Changes after offset {} were purged before reaching {}; sending it every book up to "
+                        + "offset {}", after, peer, head);
+            }
+            if (last) {
+                log.info("Peer {} resynchronized up to offset {}", peer, head);
+                cursors.put(peer, head);
+                return;
+            }
+            position = next;
+        }
+    }
+
+    /**
+     * Posts a batch to the peer. Returns {@code false} if the peer refused it because it is missing earlier
+     * changes, after moving the cursor to the offset it has.
+     */
+    private boolean send(String peer, ReplicationBatch<?> batch) {
+        try {
+            restClient.post()
+                    .uri(peer + "/internal/replication")
+                    .body(batch)
+                    .retrieve()
+                    .toBodilessEntity();
+            return true;
+        } catch (HttpClientErrorException.Conflict e) {
+            String expected = Objects.requireNonNull(e.getResponseHeaders()).getFirst(EXPECTED_OFFSET_HEADER);
+            log.info("Peer {} has changes up to offset {}, resending from there", peer, expected);
+            cursors.put(peer, Long.parseLong(Objects.requireNonNull(expected)));
+            return false;
+        }
+    }
+
+    private List<String> peers() {
+        if (!staticPeers.isEmpty()) {
+            return staticPeers;
+        }
+
+        DiscoveryClient discovery = discoveryClient.getIfAvailable();
+        if (discovery == null) {
+            return List.of();
+        }
+        Registration self = registration.getIfAvailable();
+        List<String> peers = new ArrayList<>();
+        for (ServiceInstance instance : discovery.getInstances(serviceId)) {
+            if (self == null || !Objects.equals(instance.getInstanceId(), self.getInstanceId())) {
+                peers.add(instance.getUri().toString());
+            }
+        }
+        return peers;
+    }
+}
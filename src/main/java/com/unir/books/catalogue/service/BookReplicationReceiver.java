@@ -0,0 +1,113 @@
+package com.unir.books.catalogue.service;
+
+import com.unir.books.catalogue.controller.model.ReplicatedChange;
+import com.unir.books.catalogue.controller.model.ReplicationBatch;
+import com.unir.books.catalogue.data.BookRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Applies the changes pushed by peer instances, in order and exactly once per origin: each origin has the offset
+ * of the last change applied from it, changes at or below it are skipped as duplicates, and a batch that does not
+ * follow it is refused so the sender resends from there. Resync pages are applied in book id order the same way,
+ * and the origin offset only moves once the last page arrives.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BookReplicationReceiver {
+
+    private final BookRepository repository;
+
+    private final Map<String, Origin> origins = new ConcurrentHashMap<>();
+
+    /**
+     * The offset of the last change applied from each origin.
+     */
+    public Map<String, Long> getApplied() {
+        Map<String, Long> applied = new TreeMap<>();
+        origins.forEach((origin, state) -> applied.put(origin, state.applied));
+        return applied;
+    }
+
+    /**
+     * Applies a batch. Returns {@code null} once it is applied, or the offset the origin has to resend from if
+     * changes before the batch are missing.
+     */
+    public Long receive(ReplicationBatch<ReplicatedChange> batch) {
+
+        Origin origin = origins.computeIfAbsent(batch.getOrigin(), key -> new Origin());
+        synchronized (origin) {
+            if (batch.isResync()) {
+                return resync(origin, batch);
+            }
+
+            long last = origin.applied;
+            if (batch.getAfter() > last) {
+                return last;
+            }
+
+            try {
+                for (ReplicatedChange change : batch.getChanges()) {
+                    if (change.getOffset() <= last) {
+                        continue;
+                    }
+                    apply(batch.getOrigin(), change);
+                    last = change.getOffset();
+                }
+                last = Math.max(last, batch.getNext());
+            } finally {
+                origin.applied = last;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Applies a resync page if it follows the previous one, or starts a resync with the first page. A page that
+     * does not follow is refused with the current offset; the sender then starts over.
+     */
+    private Long resync(Origin origin, ReplicationBatch<ReplicatedChange> batch) {
+
+        if (batch.getAfter() != 0 && batch.getAfter() != origin.resynced) {
+            return origin.applied;
+        }
+        if (batch.getAfter() == 0) {
+            log.info("Resynchronizing every book from {}", batch.getOrigin());
+        }
+
+        // Changes written while the sender read the pages may also come later from its log; replicate() keeps
+        // the newest version, so applying them twice is harmless
+        batch.getChanges().forEach(change -> apply(batch.getOrigin(), change));
+        origin.resynced = batch.getNext();
+        if (batch.getHead() != null) {
+            origin.applied = batch.getHead();
+            log.info("Resynchronized with {} up to offset {}", batch.getOrigin(), batch.getHead());
+        }
+        return null;
+    }
+
+    private void apply(String origin, ReplicatedChange change) {
+        try {
+            repository.replicate(change.getType(), change.getBook());
+        } catch (DataIntegrityViolationException e) {
+            // Two instances wrote conflicting books; retrying would fail forever, so the change is dropped
+            log.error("Replicated change {} of book {} from {} conflicts with a local book", change.getOffset(),
+                    change.getBook().getId(), origin, e);
+        }
+    }
+
+    private static final class Origin {
+
+        private long applied;
+
+        // Last book id applied by a resync in progress
+        private long resynced;
+    }
+}
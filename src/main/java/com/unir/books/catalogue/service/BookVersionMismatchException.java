@@ -0,0 +1,12 @@
+package com.unir.books.catalogue.service;
+
+/**
+ * A conditional update rejected before it was applied because the book is no longer at any of the versions the
+ * client named.
+ */
+public class BookVersionMismatchException extends RuntimeException {
+
+    public BookVersionMismatchException(Long bookId, Long version) {
+        super("Book " + bookId + " is at version " + version);
+    }
+}
@@ -0,0 +1,409 @@
+package com.unir.books.catalogue.service;
+
+import com.unir.books.catalogue.data.BookRepository;
+import com.unir.books.catalogue.data.model.Book;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Optional write-behind buffer for book updates. An update is applied to an in-memory copy of the book, so several
+ * updates to the same book within the coalescing window end up as a single row write, and a background thread
+ * flushes the pending books in JDBC batches. Until then the buffered copy overlays reads by id.
+ * <p>
+ * Every buffered update bumps the version of the copy as a direct write would, so ETags and optimistic locking
+ * look the same to clients. The flush writes a row only if it still has the version the copy started from. Stock
+ * changes and deletes go through {@link #flushAndRun}, which keeps the book from being buffered again until they
+ * commit, so they never change a row under a buffered update. A flush still conflicts, and its update is
+ * discarded, when the row is changed by something this buffer does not see: changes replicated from a peer
+ * instance, SQL run directly against the database, or a stock change or delete that went ahead after the flush
+ * of the same book failed.
+ * <p>
+ * Searches read the database and only see buffered updates once they are flushed, up to the coalescing window
+ * later. Buffering an update already bumps the catalogue generation, so list validators stop matching then and
+ * again after the flush, and a client is never told that a list it holds is still current.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BookWriteBehind {
+
+    private final BookRepository repository;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<Long, Pending> pending = new ConcurrentHashMap<>();
+
+    private final Lock flushLock = new ReentrantLock();
+
+    // Books being changed directly by flushAndRun, which updates must not coalesce into
+    private final Set<Long> fenced = ConcurrentHashMap.newKeySet();
+
+    private ScheduledExecutorService flusher;
+
+    private Counter coalesced;
+
+    private Counter flushed;
+
+    private Counter conflicts;
+
+    @Value("${catalogue.write-behind.enabled:false}")
+    private boolean enabled;
+
+    @Value("${catalogue.write-behind.window:2s}")
+    private Duration window;
+
+    @Value("${catalogue.write-behind.batch-size:500}")
+    private int batchSize;
+
+    @Value("${catalogue.write-behind.max-pending:10000}")
+    private int maxPending;
+
+    @Value("${catalogue.write-behind.wait-for-flush:false}")
+    private boolean waitForFlush;
+
+    @Value("${catalogue.write-behind.flush-on-shutdown:true}")
+    private boolean flushOnShutdown;
+
+    /**
+     * A change to apply to a book; it may reject the change by throwing.
+     */
+    @FunctionalInterface
+    public interface BookUpdate {
+        void apply(Book book) throws IOException;
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        meterRegistry.gauge("books.writebehind.pending", pending, Map::size);
+        coalesced = meterRegistry.counter("books.writebehind.coalesced");
+        flushed = meterRegistry.counter("books.writebehind.flushed");
+        conflicts = meterRegistry.counter("books.writebehind.conflicts");
+
+        // Checking a few times per window keeps the time an update stays buffered close to the window
+        long tick = Math.max(10, window.toMillis() / 4);
+        flusher = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("book-write-behind").daemon().factory());
+        flusher.scheduleWithFixedDelay(this::flushDue, tick, tick, TimeUnit.MILLISECONDS);
+        log.info("Write-behind enabled with a window of {}", window);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (flusher == null) {
+            return;
+        }
+        flusher.shutdownNow();
+        if (flushOnShutdown) {
+            flush();
+        }
+        if (!pending.isEmpty()) {
+            log.warn("Discarding {} buffered book updates on shutdown", pending.size());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * The buffered copy of a book, or {@code null} if it has no update pending.
+     */
+    public Book get(Long id) {
+        Pending entry = pending.get(id);
+        if (entry == null) {
+            return null;
+        }
+        synchronized (entry) {
+            return entry.book;
+        }
+    }
+
+    /**
+     * Applies {@code update} to the current state of a book and buffers the result. Returns the updated book, or
+     * {@code null} if it does not exist. With {@code wait-for-flush} the call returns once the update is written.
+     */
+    public Book update(Long id, BookUpdate update) throws IOException {
+
+        if (pending.size() >= maxPending && !pending.containsKey(id)) {
+            // Back pressure: the caller pays for the flush instead of letting the buffer grow without bound
+            flush();
+        }
+
+        CompletableFuture<Void> written = waitForFlush ? new CompletableFuture<>() : null;
+        Book result = apply(id, null, update, written);
+        if (result == null) {
+            // Not buffered, or fenced. Entries are only removed and direct stock changes and deletes only run under
+            // the flush lock, so reading the base under it means the row cannot change before the entry is in the map
+            flushLock.lock();
+            try {
+                Book stored = pending.containsKey(id) ? null : repository.getBookForUpdate(id);
+                result = apply(id, stored, update, written);
+            } finally {
+                flushLock.unlock();
+            }
+        }
+
+        if (result != null) {
+            repository.markChanged();
+        }
+        if (result != null && written != null) {
+            try {
+                written.join();
+            } catch (CompletionException e) {
+                throw (RuntimeException) e.getCause();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Writes the buffered updates of the given books and runs {@code action}, which changes them directly, before
+     * any of them can be buffered again. Buffered updates then always start from the row {@code action} left.
+     */
+    public <T> T flushAndRun(Collection<Long> ids, Supplier<T> action) {
+        if (!enabled) {
+            return action.get();
+        }
+
+        flushLock.lock();
+        fenced.addAll(ids);
+        try {
+            // An update already applying to a buffered copy when the fence went up can keep it buffered past the
+            // first flush; the second one writes it
+            flush(ids);
+            flush(ids);
+            return action.get();
+        } finally {
+            fenced.removeAll(ids);
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Applies {@code update} to the buffered copy of a book, or to {@code stored} when it is not buffered. Returns
+     * {@code null} if there is neither, or if the book is fenced.
+     */
+    private Book apply(Long id, Book stored, BookUpdate update, CompletableFuture<Void> written) throws IOException {
+
+        Book[] result = new Book[1];
+        try {
+            pending.compute(id, (key, entry) -> {
+                if (fenced.contains(key)) {
+                    // Left to the caller, which waits for the flush lock
+                    return entry;
+                }
+                boolean buffered = entry != null;
+                if (!buffered) {
+                    if (stored == null) {
+                        return null;
+                    }
+                    entry = new Pending(stored, System.nanoTime());
+                }
+                synchronized (entry) {
+                    Book book = entry.book.toBuilder().build();
+                    try {
+                        update.apply(book);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    book.setVersion(entry.book.getVersion() + 1);
+                    book.setLastModified(new Date());
+                    entry.book = book;
+                    if (written != null) {
+                        entry.waiters.add(written);
+                    }
+                    result[0] = book;
+                }
+                if (buffered) {
+                    coalesced.increment();
+                }
+                return entry;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return result[0];
+    }
+
+    /**
+     * Writes every buffered update.
+     */
+    public void flush() {
+        flush(List.copyOf(pending.keySet()));
+    }
+
+    private void flushDue() {
+        try {
+            long due = System.nanoTime() - window.toNanos();
+            List<Long> ids = new ArrayList<>();
+            pending.forEach((id, entry) -> {
+                if (entry.bufferedAt - due <= 0) {
+                    ids.add(id);
+                }
+            });
+            if (!ids.isEmpty()) {
+                flush(ids);
+            }
+        } catch (RuntimeException e) {
+            log.error("Error flushing buffered book updates", e);
+        }
+    }
+
+    private void flush(Collection<Long> ids) {
+        flushLock.lock();
+        try {
+            List<Flush> batch = new ArrayList<>(Math.min(ids.size(), batchSize));
+            for (Long id : ids) {
+                Pending entry = pending.get(id);
+                if (entry == null) {
+                    continue;
+                }
+                synchronized (entry) {
+                    batch.add(new Flush(entry, entry.book, entry.baseVersion, entry.waiters));
+                    entry.waiters = new ArrayList<>();
+                }
+                if (batch.size() == batchSize) {
+                    write(batch);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void write(List<Flush> batch) {
+
+        Map<Long, Long> expectedVersions = new HashMap<>();
+        List<Book> books = new ArrayList<>(batch.size());
+        for (Flush flush : batch) {
+            expectedVersions.put(flush.book.getId(), flush.baseVersion);
+            books.add(flush.book);
+        }
+
+        Set<Long> written;
+        try {
+            written = repository.updateAll(books, expectedVersions);
+        } catch (DataIntegrityViolationException e) {
+            // One row breaks a constraint and takes the whole batch down; write the rows one by one to isolate it
+            if (batch.size() > 1) {
+                for (Flush flush : batch) {
+                    write(List.of(flush));
+                }
+                return;
+            }
+            log.error("Discarding buffered update of book {}", books.get(0).getId(), e);
+            conflicts.increment();
+            finish(batch.get(0), e, true);
+            return;
+        } catch (DataAccessException e) {
+            // Callers waiting for the flush are told the update failed, so it is dropped rather than written later
+            // behind their back. Without waiters the updates stay buffered and are retried on the next flush.
+            log.error("Error writing {} buffered book updates", batch.size(), e);
+            batch.forEach(flush -> finish(flush, e, waitForFlush));
+            return;
+        }
+
+        for (Flush flush : batch) {
+            if (written.contains(flush.book.getId())) {
+                flushed.increment();
+                finish(flush, null, true);
+            } else {
+                log.warn("Discarding buffered update of book {}: it was changed or deleted meanwhile",
+                        flush.book.getId());
+                conflicts.increment();
+                finish(flush, new ObjectOptimisticLockingFailureException(Book.class, flush.book.getId()), true);
+            }
+        }
+    }
+
+    /**
+     * Completes the waiters of a flushed state and, once it is written or discarded, takes it out of the buffer.
+     * An entry updated again meanwhile stays, now based on the version just written; after a conflict its newer
+     * updates have nothing valid to be written over, so they are discarded as well.
+     */
+    private void finish(Flush flush, RuntimeException failure, boolean done) {
+
+        if (done) {
+            pending.computeIfPresent(flush.book.getId(), (id, entry) -> {
+                if (entry != flush.entry) {
+                    return entry;
+                }
+                synchronized (entry) {
+                    if (failure != null) {
+                        entry.waiters.forEach(waiter -> waiter.completeExceptionally(failure));
+                        return null;
+                    }
+                    if (entry.book == flush.book) {
+                        return null;
+                    }
+                    entry.baseVersion = flush.book.getVersion();
+                    return entry;
+                }
+            });
+        }
+
+        for (CompletableFuture<Void> waiter : flush.waiters) {
+            if (failure == null) {
+                waiter.complete(null);
+            } else {
+                waiter.completeExceptionally(failure);
+            }
+        }
+    }
+
+    private static final class Pending {
+
+        private Book book;
+
+        private long baseVersion;
+
+        private final long bufferedAt;
+
+        private List<CompletableFuture<Void>> waiters = new ArrayList<>();
+
+        private Pending(Book book, long bufferedAt) {
+            this.book = book;
+            this.baseVersion = book.getVersion();
+            this.bufferedAt = bufferedAt;
+        }
+    }
+
+    private record Flush(Pending entry, Book book, long baseVersion, List<CompletableFuture<Void>> waiters) {
+    }
+}
@@ -1,25 +1,67 @@
 package com.unir.books.catalogue.service;
 
 import com.unir.books.catalogue.controller.model.BookDto;
+import com.unir.books.catalogue.controller.model.BooksPage;
+import com.unir.books.catalogue.controller.model.BulkCreateResponse;
 import com.unir.books.catalogue.controller.model.CreateBookRequest;
+import com.unir.books.catalogue.controller.model.FacetsResponse;
+import com.unir.books.catalogue.controller.model.MultiGetResponse;
+import com.unir.books.catalogue.controller.model.RankedBook;
+import com.unir.books.catalogue.controller.model.StockRequest;
+import com.unir.books.catalogue.controller.model.StockResponse;
+import com.unir.books.catalogue.data.index.Suggestion;
 import com.unir.books.catalogue.data.model.Book;
+import com.unir.books.catalogue.data.model.BookSummary;
+import com.unir.books.catalogue.data.snapshot.SnapshotInfo;
+import com.unir.books.catalogue.data.utils.BookFilter;
 
-import java.util.Date;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public interface BooksCatalogueService {
 
-    List<Book> getBooks(String title, String author, String category, String isbn,
-                        Date publishedDate, Double price, Integer rating, Boolean visible);
+    List<Book> getBooks(BookFilter filter);
+
+    BooksPage<Book> getBooksPage(BookFilter filter, Long after, int limit);
+
+    BooksPage<BookSummary> getBookSummaries(BookFilter filter, Long after, Integer limit);
+
+    BooksPage<Map<String, Object>> getBookFields(BookFilter filter, List<String> fields, Long after, Integer limit);
+
+    List<RankedBook> searchRanked(String query, int limit);
+
+    List<Suggestion> suggest(String prefix, int limit);
+
+    FacetsResponse getFacets(BookFilter filter, List<Double> priceBands);
+
+    void streamBooks(BookFilter filter, Consumer<Book> consumer);
 
     Book getBook(String bookId);
 
+    long getCatalogueGeneration();
+
+    long getCatalogueLastModified();
+
+    MultiGetResponse getBooks(List<Long> bookIds);
+
     Boolean removeBook(String bookId);
 
     Book createBook(CreateBookRequest request);
 
-    Book updateBook(String bookId, String updateRequest);
+    BulkCreateResponse createBooks(Iterator<CreateBookRequest> requests);
+
+    Book updateBook(String bookId, String updateRequest, Collection<Long> expectedVersions);
+
+    Book updateBook(String bookId, BookDto updateRequest, Collection<Long> expectedVersions);
+
+    StockResponse reserveStock(StockRequest request);
+
+    StockResponse releaseStock(StockRequest request);
 
-    Book updateBook(String bookId, BookDto updateRequest);
+    SnapshotInfo createSnapshot() throws IOException;
 
 }
@@ -1,21 +1,56 @@
 package com.unir.books.catalogue.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.github.fge.jsonpatch.JsonPatchException;
-import com.github.fge.jsonpatch.mergepatch.JsonMergePatch;
 import com.unir.books.catalogue.controller.model.BookDto;
+import com.unir.books.catalogue.controller.model.BooksPage;
+import com.unir.books.catalogue.controller.model.BulkCreateResponse;
+import com.unir.books.catalogue.controller.model.BulkItemResult;
+import com.unir.books.catalogue.controller.model.BulkItemStatus;
 import com.unir.books.catalogue.controller.model.CreateBookRequest;
+import com.unir.books.catalogue.controller.model.FacetsResponse;
+import com.unir.books.catalogue.controller.model.MultiGetResponse;
+import com.unir.books.catalogue.controller.model.PriceBandCount;
+import com.unir.books.catalogue.controller.model.RankedBook;
+import com.unir.books.catalogue.controller.model.StockItem;
+import com.unir.books.catalogue.controller.model.StockItemResult;
+import com.unir.books.catalogue.controller.model.StockItemStatus;
+import com.unir.books.catalogue.controller.model.StockRequest;
+import com.unir.books.catalogue.controller.model.StockResponse;
 import com.unir.books.catalogue.data.BookRepository;
+import com.unir.books.catalogue.data.index.BookRankedIndex;
+import com.unir.books.catalogue.data.index.BookSuggestIndex;
+import com.unir.books.catalogue.data.index.Suggestion;
 import com.unir.books.catalogue.data.model.Book;
+import com.unir.books.catalogue.data.model.BookSummary;
+import com.unir.books.catalogue.data.snapshot.BookSnapshotStore;
+import com.unir.books.catalogue.data.snapshot.SnapshotInfo;
+import com.unir.books.catalogue.data.utils.BookFilter;
+import com.unir.books.catalogue.data.utils.Constants;
+import com.unir.books.catalogue.data.utils.SearchCriteria;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 
-import java.util.Date;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 @Service
 @Slf4j
@@ -25,98 +60,442 @@ public class BooksCatalogueServiceImpl implements BooksCatalogueService {
     private BookRepository repository;
 
     @Autowired
-    private ObjectMapper objectMapper;
+    private BookMergePatcher mergePatcher;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private BookSnapshotStore snapshotStore;
+
+    @Autowired
+    private BookWriteBehind writeBehind;
+
+    @Autowired
+    private BookRankedIndex rankedIndex;
+
+    @Autowired
+    private BookSuggestIndex suggestIndex;
+
+    @Value("${catalogue.bulk.chunk-size:500}")
+    private int bulkChunkSize;
+
+    @Override
+    public List<Book> getBooks(BookFilter filter) {
+        return repository.search(filter);
+    }
+
+    @Override
+    public BooksPage<Book> getBooksPage(BookFilter filter, Long after, int limit) {
+
+        List<Book> books = repository.searchAfter(repository.criteria(filter), after, limit + 1);
+        return page(books, limit, Book::getId);
+    }
+
+    @Override
+    public BooksPage<BookSummary> getBookSummaries(BookFilter filter, Long after, Integer limit) {
+
+        List<BookSummary> books = repository.searchSummaries(
+                repository.criteria(filter), after, limit == null ? null : limit + 1);
+        return page(books, limit, BookSummary::getId);
+    }
+
+    @Override
+    public BooksPage<Map<String, Object>> getBookFields(BookFilter filter, List<String> fields,
+                                                        Long after, Integer limit) {
+
+        // The id is always selected: it identifies each row and is the pagination cursor
+        Set<String> selected = new LinkedHashSet<>();
+        selected.add(Constants.ID);
+        selected.addAll(fields);
+
+        List<Map<String, Object>> books = repository.searchFields(
+                repository.criteria(filter), List.copyOf(selected), after, limit == null ? null : limit + 1);
+        return page(books, limit, book -> (Long) book.get(Constants.ID));
+    }
+
+    @Override
+    public List<RankedBook> searchRanked(String query, int limit) {
+
+        if (!rankedIndex.isReady()) {
+            return null;
+        }
+
+        List<BookRankedIndex.Match> matches = rankedIndex.search(query, limit);
+        Map<Long, Book> books = repository.getBooksById(matches.stream().map(BookRankedIndex.Match::bookId).toList());
+
+        List<RankedBook> ranked = new ArrayList<>(matches.size());
+        for (BookRankedIndex.Match match : matches) {
+            Book pending = writeBehind.get(match.bookId());
+            Book book = pending != null ? pending : books.get(match.bookId());
+            // A book deleted after the index was read is just left out
+            if (book != null) {
+                ranked.add(new RankedBook(match.score(), book));
+            }
+        }
+        return ranked;
+    }
 
     @Override
-    public List<Book> getBooks(String title, String author, String category, String isbn,
-                               Date publishedDate, Double price, Integer rating, Boolean visible) {
+    public List<Suggestion> suggest(String prefix, int limit) {
+        return suggestIndex.isReady() ? suggestIndex.suggest(prefix, limit) : null;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public FacetsResponse getFacets(BookFilter filter, List<Double> priceBands) {
+
+        SearchCriteria<Book> criteria = repository.criteria(filter);
+
+        Map<String, Long> categories = new LinkedHashMap<>();
+        repository.countBy(criteria, Constants.CATEGORY).forEach((value, count) -> categories.put((String) value, count));
+        Map<Integer, Long> ratings = new LinkedHashMap<>();
+        repository.countBy(criteria, Constants.RATING).forEach((value, count) -> ratings.put((Integer) value, count));
+        Map<Boolean, Long> visible = new LinkedHashMap<>();
+        repository.countBy(criteria, Constants.VISIBLE).forEach((value, count) -> visible.put((Boolean) value, count));
 
-        if (StringUtils.hasLength(title) || StringUtils.hasLength(author) || StringUtils.hasLength(category)
-                || StringUtils.hasLength(isbn) || publishedDate == null || price == null || rating == null
-                || visible != null) {
-            return repository.search(title, author, category, isbn, publishedDate, price, rating, visible);
+        // Every band is listed, including the empty ones, so clients can render a stable set of ranges
+        Map<Object, Long> bandCounts = repository.countByPriceBand(criteria, priceBands);
+        List<PriceBandCount> prices = new ArrayList<>(priceBands.size() + 1);
+        long total = 0;
+        for (int band = 0; band <= priceBands.size(); band++) {
+            long count = bandCounts.getOrDefault(band, 0L);
+            prices.add(new PriceBandCount(
+                    band == 0 ? null : priceBands.get(band - 1),
+                    band == priceBands.size() ? null : priceBands.get(band),
+                    count));
+            total += count;
         }
 
-        List<Book> books = repository.getBooks();
-        return books.isEmpty() ? null : books;
+        return new FacetsResponse(total, categories, ratings, visible, prices);
+    }
+
+    /**
+     * Builds a page from a result fetched with one extra row, which only tells whether there is a next page.
+     */
+    private static <T> BooksPage<T> page(List<T> books, Integer limit, Function<T, Long> id) {
+        if (limit != null && books.size() > limit) {
+            List<T> page = books.subList(0, limit);
+            return new BooksPage<>(page, id.apply(page.get(limit - 1)));
+        }
+        return new BooksPage<>(books, null);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamBooks(BookFilter filter, Consumer<Book> consumer) {
+
+        try (Stream<Book> books = repository.stream(repository.criteria(filter))) {
+            books.forEach(consumer);
+        }
     }
 
     @Override
     public Book getBook(String bookId) {
-        return repository.getBookById(Long.valueOf(bookId));
+        Book pending = writeBehind.get(Long.valueOf(bookId));
+        return pending != null ? pending : repository.getBookById(Long.valueOf(bookId));
+    }
+
+    @Override
+    public long getCatalogueGeneration() {
+        return repository.getGeneration();
+    }
+
+    @Override
+    public long getCatalogueLastModified() {
+        return repository.getLastModified();
+    }
+
+    @Override
+    public MultiGetResponse getBooks(List<Long> bookIds) {
+
+        Set<Long> ids = new LinkedHashSet<>(bookIds);
+        Map<Long, Book> found = repository.getBooksById(ids);
+
+        List<Book> books = new ArrayList<>(found.size());
+        List<Long> missing = new ArrayList<>();
+        for (Long id : ids) {
+            Book pending = writeBehind.get(id);
+            Book book = pending != null ? pending : found.get(id);
+            if (book != null) {
+                books.add(book);
+            } else {
+                missing.add(id);
+            }
+        }
+        return new MultiGetResponse(books, missing);
     }
 
     @Override
     public Boolean removeBook(String bookId) {
 
-        Book book = repository.getBookById(Long.valueOf(bookId));
+        Long id = Long.valueOf(bookId);
+        return writeBehind.flushAndRun(List.of(id), () -> {
+            Book book = repository.getBookById(id);
+            if (book != null) {
+                repository.delete(book);
+                return Boolean.TRUE;
+            } else {
+                return Boolean.FALSE;
+            }
+        });
+    }
 
-        if (book != null) {
-            repository.delete(book);
-            return Boolean.TRUE;
+    @Override
+    public Book createBook(CreateBookRequest request) {
+
+        if (isValid(request)) {
+            return repository.save(toBook(request));
         } else {
-            return Boolean.FALSE;
+            return null;
         }
     }
 
     @Override
-    public Book createBook(CreateBookRequest request) {
+    public BulkCreateResponse createBooks(Iterator<CreateBookRequest> requests) {
+
+        List<BulkItemResult> results = new ArrayList<>();
+        List<CreateBookRequest> chunk = new ArrayList<>(bulkChunkSize);
+        List<Integer> indexes = new ArrayList<>(bulkChunkSize);
+        int index = 0;
 
-        if (request != null && StringUtils.hasLength(request.getTitle().trim())
-                && StringUtils.hasLength(request.getAuthor().trim())
-                && StringUtils.hasLength(request.getCategory().trim())
-                && StringUtils.hasLength(request.getIsbn().trim())
+        while (true) {
+            CreateBookRequest request;
+            try {
+                if (!requests.hasNext()) {
+                    break;
+                }
+                request = requests.next();
+            } catch (RuntimeException e) {
+                results.add(new BulkItemResult(index, null, BulkItemStatus.INVALID, "Malformed item: " + e.getMessage()));
+                break;
+            }
+
+            if (isValid(request)) {
+                chunk.add(request);
+                indexes.add(index);
+                if (chunk.size() == bulkChunkSize) {
+                    saveChunk(indexes, chunk, results);
+                }
+            } else {
+                results.add(new BulkItemResult(index, null, BulkItemStatus.INVALID, "Missing or empty required fields"));
+            }
+            index++;
+        }
+        saveChunk(indexes, chunk, results);
+
+        results.sort(Comparator.comparingInt(BulkItemResult::getIndex));
+        int created = (int) results.stream().filter(result -> result.getStatus() == BulkItemStatus.CREATED).count();
+        return new BulkCreateResponse(created, results.size() - created, results);
+    }
+
+    /**
+     * Saves a chunk of valid requests in one batched transaction. If the chunk is rejected (for example by a
+     * duplicated title) its items are retried one by one so that only the offending ones are reported as failed.
+     */
+    private void saveChunk(List<Integer> indexes, List<CreateBookRequest> chunk, List<BulkItemResult> results) {
+
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        try {
+            List<Book> saved = repository.saveAll(chunk.stream().map(this::toBook).toList());
+            for (int i = 0; i < saved.size(); i++) {
+                results.add(new BulkItemResult(indexes.get(i), saved.get(i).getId(), BulkItemStatus.CREATED, null));
+            }
+        } catch (DataAccessException e) {
+            log.warn("Bulk chunk of {} books rejected, retrying item by item", chunk.size(), e);
+            for (int i = 0; i < chunk.size(); i++) {
+                try {
+                    Book saved = repository.save(toBook(chunk.get(i)));
+                    results.add(new BulkItemResult(indexes.get(i), saved.getId(), BulkItemStatus.CREATED, null));
+                } catch (DataAccessException ex) {
+                    results.add(new BulkItemResult(indexes.get(i), null, BulkItemStatus.FAILED,
+                            ex.getMostSpecificCause().getMessage()));
+                }
+            }
+        }
+        chunk.clear();
+        indexes.clear();
+    }
+
+    private boolean isValid(CreateBookRequest request) {
+        return request != null && StringUtils.hasText(request.getTitle())
+                && StringUtils.hasText(request.getAuthor())
+                && StringUtils.hasText(request.getCategory())
+                && StringUtils.hasText(request.getIsbn())
                 && request.getPublished() != null
                 && request.getPrice() != null
                 && request.getRating() != null
                 && request.getStock() != null
-                && request.getVisible() != null) {
-
-            Book book = Book.builder().title(request.getTitle())
-                    .author(request.getAuthor())
-                    .category(request.getCategory())
-                    .isbn(request.getIsbn())
-                    .published(request.getPublished())
-                    .price(request.getPrice())
-                    .rating(request.getRating())
-                    .stock(request.getStock())
-                    .visible(request.getVisible()).build();
-
-            return repository.save(book);
-        } else {
+                && request.getVisible() != null;
+    }
+
+    private Book toBook(CreateBookRequest request) {
+        return Book.builder().title(request.getTitle())
+                .author(request.getAuthor())
+                .category(request.getCategory())
+                .isbn(request.getIsbn())
+                .published(request.getPublished())
+                .price(request.getPrice())
+                .rating(request.getRating())
+                .stock(request.getStock())
+                .visible(request.getVisible()).build();
+    }
+
+    @Override
+    public Book updateBook(String bookId, String request, Collection<Long> expectedVersions) {
+
+        try {
+            return update(Long.valueOf(bookId), expectedVersions, book -> mergePatcher.apply(request, book));
+        } catch (IOException | IllegalArgumentException e) {
+            log.error("Error updating book {}", bookId, e);
             return null;
         }
     }
 
     @Override
-    public Book updateBook(String bookId, String request) {
+    public Book updateBook(String bookId, BookDto updateRequest, Collection<Long> expectedVersions) {
 
-        Book book = repository.getBookById(Long.valueOf(bookId));
-        if (book != null) {
-            try {
-                JsonMergePatch jsonMergePatch = JsonMergePatch.fromJson(objectMapper.readTree(request));
-                JsonNode target = jsonMergePatch.apply(objectMapper.readTree(objectMapper.writeValueAsString(book)));
-                Book patched = objectMapper.treeToValue(target, Book.class);
-                repository.save(patched);
-                return patched;
-            } catch (JsonProcessingException | JsonPatchException e) {
-                log.error("Error updating book {}", bookId, e);
-                return null;
+        try {
+            return update(Long.valueOf(bookId), expectedVersions, book -> book.update(updateRequest));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Applies an update to a book, buffered when write-behind is enabled or else in place on the managed entity
+     * within its own transaction. Returns {@code null} if the book does not exist. With {@code expectedVersions}
+     * the update is rejected with a {@link BookVersionMismatchException} unless the book, buffered updates
+     * included, is still at one of those versions.
+     */
+    private Book update(Long id, Collection<Long> expectedVersions, BookWriteBehind.BookUpdate change)
+            throws IOException {
+
+        BookWriteBehind.BookUpdate update = book -> {
+            if (expectedVersions != null && !expectedVersions.contains(book.getVersion())) {
+                throw new BookVersionMismatchException(id, book.getVersion());
             }
-        } else {
-            return null;
+            change.apply(book);
+        };
+
+        if (writeBehind.isEnabled()) {
+            return writeBehind.update(id, update);
+        }
+
+        try {
+            return transactionTemplate.execute(status -> {
+                Book book = repository.getBookForUpdate(id);
+                if (book == null) {
+                    return null;
+                }
+                try {
+                    update.apply(book);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return repository.save(book);
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
     }
 
     @Override
-    public Book updateBook(String bookId, BookDto updateRequest) {
-        Book book = repository.getBookById(Long.valueOf(bookId));
-        if (book != null) {
-            book.update(updateRequest);
-            repository.save(book);
-            return book;
+    public StockResponse reserveStock(StockRequest request) {
+        return changeStock(request, -1, StockItemStatus.RESERVED);
+    }
+
+    @Override
+    public StockResponse releaseStock(StockRequest request) {
+        return changeStock(request, 1, StockItemStatus.RELEASED);
+    }
+
+    @Override
+    public SnapshotInfo createSnapshot() throws IOException {
+        writeBehind.flush();
+        return snapshotStore.export();
+    }
+
+    /**
+     * Applies every item with its own conditional UPDATE. In all-or-nothing mode the items share one transaction
+     * that is rolled back if any of them fails; otherwise each item commits on its own and row locks are only held
+     * for a single statement.
+     */
+    private StockResponse changeStock(StockRequest request, int sign, StockItemStatus applied) {
+
+        // Buffered updates are written first, outside the stock transaction, so the stock UPDATE applies on top
+        // and no update is buffered over the pre-stock row while it runs
+        List<Long> ids = request.getItems().stream().map(StockItem::getBookId).filter(Objects::nonNull).toList();
+        return writeBehind.flushAndRun(ids, () -> applyStockRequest(request, sign, applied));
+    }
+
+    private StockResponse applyStockRequest(StockRequest request, int sign, StockItemStatus applied) {
+
+        if (!request.isAllOrNothing()) {
+            return applyStockChanges(request.getItems(), sign, applied);
+        }
+
+        return transactionTemplate.execute(status -> {
+            StockResponse response = applyStockChanges(request.getItems(), sign, applied);
+            if (!response.isSuccess()) {
+                status.setRollbackOnly();
+                for (StockItemResult result : response.getItems()) {
+                    if (result.getStatus() == applied) {
+                        result.setStatus(StockItemStatus.ROLLED_BACK);
+                        result.setStock(null);
+                        result.setVersion(null);
+                    }
+                }
+            }
+            return response;
+        });
+    }
+
+    private StockResponse applyStockChanges(List<StockItem> items, int sign, StockItemStatus applied) {
+
+        StockItemResult[] results = new StockItemResult[items.size()];
+        boolean success = true;
+
+        // Rows are always updated in id order so that concurrent batches cannot deadlock each other
+        Integer[] order = new Integer[items.size()];
+        Arrays.setAll(order, i -> i);
+        Arrays.sort(order, Comparator.comparing(i -> items.get(i).getBookId(),
+                Comparator.nullsFirst(Comparator.naturalOrder())));
+
+        for (int i : order) {
+            StockItem item = items.get(i);
+            StockItemResult result = new StockItemResult(item.getBookId(), item.getQuantity(), null, null, null);
+            results[i] = result;
+
+            if (item.getBookId() == null || item.getQuantity() == null || item.getQuantity() <= 0) {
+                result.setStatus(StockItemStatus.INVALID_QUANTITY);
+            } else {
+                Book book = repository.changeStock(item.getBookId(), sign * item.getQuantity(), item.getVersion());
+                if (book != null) {
+                    result.setStatus(applied);
+                    result.setStock(book.getStock());
+                    result.setVersion(book.getVersion());
+                } else {
+                    result.setStatus(stockFailure(item));
+                }
+            }
+            success &= result.getStatus() == applied;
+        }
+
+        return new StockResponse(success, Arrays.asList(results));
+    }
+
+    private StockItemStatus stockFailure(StockItem item) {
+        Book book = repository.getBookById(item.getBookId());
+        if (book == null) {
+            return StockItemStatus.NOT_FOUND;
+        } else if (item.getVersion() != null && !item.getVersion().equals(book.getVersion())) {
+            return StockItemStatus.VERSION_CONFLICT;
         } else {
-            return null;
+            return StockItemStatus.INSUFFICIENT_STOCK;
         }
     }
 
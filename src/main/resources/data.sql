@@ -1,14 +1,17 @@
-INSERT INTO books (id, title, author, published, category, isbn, rating, visible, price, stock)
-VALUES (1, 'Harry Potter', 'J. K: Rowling', '1990-12-05', 'Ciencia Ficcion','978-0-452-28423-5', 4,true,25.50,10);
+INSERT INTO books (id, title, author, published, category, isbn, rating, visible, price, stock, version, last_modified)
+VALUES (1, 'Harry Potter', 'J. K: Rowling', '1990-12-05', 'Ciencia Ficcion','978-0-452-28423-5', 4,true,25.50,10, 0, CURRENT_TIMESTAMP);
 
-INSERT INTO books (id, title, author, published, category, isbn, rating, visible, price, stock)
-VALUES (2, 'Cien años de soledad', 'JGabriel Garcia Marquez', '1967-05-30', 'Realismo magico','978-0-307-38991-4',3,true,18.25,20);
+INSERT INTO books (id, title, author, published, category, isbn, rating, visible, price, stock, version, last_modified)
+VALUES (2, 'Cien años de soledad', 'JGabriel Garcia Marquez', '1967-05-30', 'Realismo magico','978-0-307-38991-4',3,true,18.25,20, 0, CURRENT_TIMESTAMP);
 
-INSERT INTO books (id, title, author, published, category, isbn, rating, visible, price, stock)
-VALUES (3, 'Orgullo y prejuicio', 'Jane Austen', '1813-01-28', 'Novela','978-0-141-43951-8',4,false,29.75,30);
+INSERT INTO books (id, title, author, published, category, isbn, rating, visible, price, stock, version, last_modified)
+VALUES (3, 'Orgullo y prejuicio', 'Jane Austen', '1813-01-28', 'Novela','978-0-141-43951-8',4,false,29.75,30, 0, CURRENT_TIMESTAMP);
 
-INSERT INTO books (id, title, author, published, category, isbn, rating, visible, price, stock)
-VALUES (4, 'El codigo Da Vinci', 'Dan Brown', '	2003-03-18', 'Thriller','978-0-307-27767-1',5,true,37.50,17);
+INSERT INTO books (id, title, author, published, category, isbn, rating, visible, price, stock, version, last_modified)
+VALUES (4, 'El codigo Da Vinci', 'Dan Brown', '	2003-03-18', 'Thriller','978-0-307-27767-1',5,true,37.50,17, 0, CURRENT_TIMESTAMP);
 
-INSERT INTO books (id, title, author, published, category, isbn, rating, visible, price, stock)
-VALUES (5, 'El principito', 'Antoine de Saint-Exupery', '1943-04-06', 'Literatura infantil','978-0-15-216970-3',3,true, 40.25, 35);
\ No newline at end of file
+INSERT INTO books (id, title, author, published, category, isbn, rating, visible, price, stock, version, last_modified)
+VALUES (5, 'El principito', 'Antoine de Saint-Exupery', '1943-04-06', 'Literatura infantil','978-0-15-216970-3',3,true, 40.25, 35, 0, CURRENT_TIMESTAMP);
+
+-- Los ids de la secuencia se reservan en bloques de 50: el primer bloque (52..101) queda por encima de los datos iniciales
+ALTER SEQUENCE books_seq RESTART WITH 101;
@@ -0,0 +1,68 @@
+package com.unir.books.catalogue.data.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BkTreeTest {
+
+    @Test
+    void distanceCountsInsertionsDeletionsAndSubstitutions() {
+        assertThat(BkTree.distance("orgulo", "orgullo")).isEqualTo(1);
+        assertThat(BkTree.distance("kitten", "sitting")).isEqualTo(3);
+        assertThat(BkTree.distance("", "abc")).isEqualTo(3);
+        assertThat(BkTree.distance("potter", "potter")).isZero();
+    }
+
+    @Test
+    void ignoresDuplicatedTerms() {
+        BkTree tree = new BkTree();
+        List.of("orgullo", "prejuicio", "orgullo").forEach(tree::add);
+
+        assertThat(tree.size()).isEqualTo(2);
+    }
+
+    @Test
+    void findsTermsWithinTheDistance() {
+        BkTree tree = new BkTree();
+        List.of("orgullo", "orgullos", "orgulloso", "prejuicio", "soledad", "orgia").forEach(tree::add);
+
+        assertThat(search(tree, "orgulo", 1)).containsExactly(Map.entry("orgullo", 1));
+        assertThat(search(tree, "orgulo", 2)).containsOnly(Map.entry("orgullo", 1), Map.entry("orgullos", 2));
+        assertThat(search(tree, "quijote", 2)).isEmpty();
+    }
+
+    @Test
+    void matchesAFullScanOfTheTerms() {
+        Random random = new Random(42);
+        List<String> terms = random.ints(2000, 0, 1 << 20)
+                .mapToObj(value -> Integer.toString(value, 5))
+                .toList();
+        BkTree tree = new BkTree();
+        terms.forEach(tree::add);
+
+        for (int i = 0; i < 50; i++) {
+            String query = Integer.toString(random.nextInt(1 << 20), 5);
+            Map<String, Integer> expected = new HashMap<>();
+            for (String term : terms) {
+                int distance = BkTree.distance(query, term);
+                if (distance <= 2) {
+                    expected.put(term, distance);
+                }
+            }
+
+            assertThat(search(tree, query, 2)).isEqualTo(expected);
+        }
+    }
+
+    private static Map<String, Integer> search(BkTree tree, String query, int maxDistance) {
+        Map<String, Integer> found = new HashMap<>();
+        tree.search(query, maxDistance, found::put);
+        return found;
+    }
+}
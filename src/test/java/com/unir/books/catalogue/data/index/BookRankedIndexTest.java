@@ -0,0 +1,109 @@
+package com.unir.books.catalogue.data.index;
+
+import com.unir.books.catalogue.data.event.BookChangeEvent;
+import com.unir.books.catalogue.data.event.BookChangeType;
+import com.unir.books.catalogue.data.model.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BookRankedIndexTest {
+
+    private final BookRankedIndex index = new BookRankedIndex();
+
+    @BeforeEach
+    void setUp() {
+        index.rebuild(Stream.of(
+                book(1L, "Orgullo y prejuicio", "Jane Austen", "Novela"),
+                book(2L, "Cien años de soledad", "Gabriel García Márquez", "Novela"),
+                book(3L, "El amor en los tiempos del cólera", "Gabriel García Márquez", "Novela"),
+                book(4L, "Sentido y sensibilidad", "Jane Austen", "Novela"),
+                book(5L, "Historia de la novela", "Ana López", "Ensayo")));
+    }
+
+    @Test
+    void matchesTermsWithATypo() {
+        assertThat(ids(index.search("orgulo", 10))).containsExactly(1L);
+        assertThat(ids(index.search("prejuicoi", 10))).containsExactly(1L);
+    }
+
+    @Test
+    void foldsAccentsAndCase() {
+        assertThat(ids(index.search("COLERA", 10))).containsExactly(3L);
+        assertThat(ids(index.search("anos", 10))).containsExactly(2L);
+    }
+
+    @Test
+    void shortTermsAndNumbersMustMatchExactly() {
+        assertThat(index.search("ez", 10)).isEmpty();
+        index.onBookChanged(new BookChangeEvent(BookChangeType.SAVED, book(6L, "1984", "George Orwell", "Novela")));
+
+        assertThat(ids(index.search("1984", 10))).containsExactly(6L);
+        assertThat(index.search("1985", 10)).isEmpty();
+    }
+
+    @Test
+    void ranksBestFirstAndKeepsTheTopK() {
+        List<BookRankedIndex.Match> matches = index.search("novela", 10);
+
+        // A title match outweighs a category match
+        assertThat(matches.get(0).bookId()).isEqualTo(5L);
+        assertThat(matches).hasSize(5)
+                .extracting(BookRankedIndex.Match::score)
+                .isSortedAccordingTo((a, b) -> Double.compare(b, a));
+
+        List<BookRankedIndex.Match> top = index.search("novela", 2);
+        assertThat(top).containsExactlyElementsOf(matches.subList(0, 2));
+    }
+
+    @Test
+    void booksMatchingMoreTermsRankHigher() {
+        List<Long> ids = ids(index.search("sentido jane austen", 10));
+
+        assertThat(ids).containsExactly(4L, 1L);
+    }
+
+    @Test
+    void aRenamedBookOnlyMatchesItsNewTitle() {
+        index.onBookChanged(new BookChangeEvent(BookChangeType.SAVED,
+                book(1L, "Persuasión", "Jane Austen", "Novela")));
+
+        assertThat(index.search("orgullo", 10)).isEmpty();
+        assertThat(ids(index.search("persuasion", 10))).containsExactly(1L);
+        assertThat(ids(index.search("austen", 10))).containsExactlyInAnyOrder(1L, 4L);
+    }
+
+    @Test
+    void aDeletedBookIsNotFound() {
+        index.onBookChanged(new BookChangeEvent(BookChangeType.DELETED, book(2L, "Cien años de soledad",
+                "Gabriel García Márquez", "Novela")));
+
+        assertThat(index.search("soledad", 10)).isEmpty();
+        assertThat(ids(index.search("marquez", 10))).containsExactly(3L);
+    }
+
+    @Test
+    void survivesCompaction() {
+        // Enough updates of one book to retire more documents than there are live ones
+        for (int i = 0; i < 1100; i++) {
+            index.onBookChanged(new BookChangeEvent(BookChangeType.SAVED,
+                    book(5L, "Historia de la novela " + i, "Ana López", "Ensayo")));
+        }
+
+        assertThat(ids(index.search("historia", 10))).containsExactly(5L);
+        assertThat(ids(index.search("orgullo", 10))).containsExactly(1L);
+        assertThat(index.search("novela", 10)).hasSize(5);
+    }
+
+    private static List<Long> ids(List<BookRankedIndex.Match> matches) {
+        return matches.stream().map(BookRankedIndex.Match::bookId).toList();
+    }
+
+    private static Book book(Long id, String title, String author, String category) {
+        return Book.builder().id(id).title(title).author(author).category(category).rating(3).visible(true).build();
+    }
+}
@@ -0,0 +1,147 @@
+package com.unir.books.catalogue.data.index;
+
+import com.unir.books.catalogue.data.event.BookChangeEvent;
+import com.unir.books.catalogue.data.event.BookChangeType;
+import com.unir.books.catalogue.data.model.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BookSuggestIndexTest {
+
+    private final BookSuggestIndex index = new BookSuggestIndex();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(index, "maxResults", 3);
+        index.rebuild(Stream.of(
+                book(1L, "Harry Potter y la piedra filosofal", "J. K. Rowling", 5),
+                book(2L, "Harry Potter y la cámara secreta", "J. K. Rowling", 4),
+                book(3L, "Harrison Bergeron", "Kurt Vonnegut", 3),
+                book(4L, "Cien años de soledad", "Gabriel García Márquez", 5)));
+    }
+
+    @Test
+    void completesAnyWordOfTheLabel() {
+        assertThat(labels(index.suggest("sole", 10))).containsExactly("Cien años de soledad");
+        assertThat(labels(index.suggest("rowl", 10))).containsExactly("J. K. Rowling");
+        assertThat(labels(index.suggest("AÑOS", 10))).containsExactly("Cien años de soledad");
+    }
+
+    @Test
+    void keepsSharedPrefixesApart() {
+        assertThat(labels(index.suggest("harr", 10))).containsExactly(
+                "Harry Potter y la piedra filosofal", "Harry Potter y la cámara secreta", "Harrison Bergeron");
+        assertThat(labels(index.suggest("harry potter y la c", 10))).containsExactly(
+                "Harry Potter y la cámara secreta");
+        assertThat(labels(index.suggest("harri", 10))).containsExactly("Harrison Bergeron");
+        assertThat(index.suggest("harrx", 10)).isEmpty();
+        assertThat(index.suggest("harry potter y la camaras", 10)).isEmpty();
+    }
+
+    @Test
+    void ranksByRatingThenLengthAndHonoursTheLimits() {
+        index.onBookChanged(saved(book(5L, "Harry", "Otro Autor", 5)));
+
+        assertThat(labels(index.suggest("harr", 10))).containsExactly(
+                "Harry", "Harry Potter y la piedra filosofal", "Harry Potter y la cámara secreta");
+        assertThat(labels(index.suggest("harr", 1))).containsExactly("Harry");
+    }
+
+    @Test
+    void aRenamedBookLeavesNoStaleSuggestion() {
+        index.onBookChanged(saved(book(3L, "Matadero cinco", "Kurt Vonnegut", 3)));
+
+        assertThat(index.suggest("harri", 10)).isEmpty();
+        assertThat(labels(index.suggest("harr", 10))).containsExactly(
+                "Harry Potter y la piedra filosofal", "Harry Potter y la cámara secreta");
+        assertThat(labels(index.suggest("mata", 10))).containsExactly("Matadero cinco");
+    }
+
+    @Test
+    void aDeletedBookLeavesNoStaleSuggestion() {
+        index.onBookChanged(new BookChangeEvent(BookChangeType.DELETED, book(1L, null, null, 0)));
+
+        assertThat(labels(index.suggest("harry", 10))).containsExactly("Harry Potter y la cámara secreta");
+        assertThat(index.suggest("filosofal", 10)).isEmpty();
+        // The author now points to their remaining book
+        assertThat(index.suggest("rowling", 10)).extracting(Suggestion::id).containsExactly(2L);
+    }
+
+    @Test
+    void aNodeListRefillsFromItsChildrenAfterARemoval() {
+        index.onBookChanged(saved(book(5L, "Harry", "Otro Autor", 5)));
+        index.onBookChanged(new BookChangeEvent(BookChangeType.DELETED, book(5L, null, null, 0)));
+
+        assertThat(labels(index.suggest("harr", 10))).containsExactly(
+                "Harry Potter y la piedra filosofal", "Harry Potter y la cámara secreta", "Harrison Bergeron");
+    }
+
+    @Test
+    void hiddenBooksAreNotSuggested() {
+        index.onBookChanged(saved(book(4L, "Cien años de soledad", "Gabriel García Márquez", 5).toBuilder()
+                .visible(false).build()));
+
+        assertThat(index.suggest("soledad", 10)).isEmpty();
+        assertThat(index.suggest("garcia", 10)).isEmpty();
+    }
+
+    @Test
+    void matchesARebuildAfterRandomChanges() {
+        Random random = new Random(7);
+        List<String> words = List.of("sol", "soledad", "solar", "sombra", "son", "s", "luna", "lunar");
+        List<Book> books = new ArrayList<>();
+        for (long id = 10; id < 60; id++) {
+            books.add(book(id, randomTitle(random, words), "Autor " + (id % 7), random.nextInt(6)));
+        }
+        books.forEach(book -> index.onBookChanged(saved(book)));
+
+        for (int i = 0; i < 300; i++) {
+            int position = random.nextInt(books.size());
+            Book book = books.get(position);
+            if (random.nextInt(4) == 0) {
+                index.onBookChanged(new BookChangeEvent(BookChangeType.DELETED, book));
+                books.set(position, book.toBuilder().visible(false).build());
+            } else {
+                Book changed = book(book.getId(), randomTitle(random, words), book.getAuthor(), random.nextInt(6));
+                index.onBookChanged(saved(changed));
+                books.set(position, changed);
+            }
+        }
+
+        BookSuggestIndex rebuilt = new BookSuggestIndex();
+        ReflectionTestUtils.setField(rebuilt, "maxResults", 3);
+        rebuilt.rebuild(Stream.concat(Stream.of(
+                book(1L, "Harry Potter y la piedra filosofal", "J. K. Rowling", 5),
+                book(2L, "Harry Potter y la cámara secreta", "J. K. Rowling", 4),
+                book(3L, "Harrison Bergeron", "Kurt Vonnegut", 3),
+                book(4L, "Cien años de soledad", "Gabriel García Márquez", 5)), books.stream()));
+
+        for (String prefix : List.of("s", "so", "sol", "sola", "sole", "som", "l", "lu", "luna", "autor", "h", "")) {
+            assertThat(index.suggest(prefix, 10)).as(prefix).isEqualTo(rebuilt.suggest(prefix, 10));
+        }
+    }
+
+    private static String randomTitle(Random random, List<String> words) {
+        return words.get(random.nextInt(words.size())) + " " + words.get(random.nextInt(words.size()));
+    }
+
+    private static List<String> labels(List<Suggestion> suggestions) {
+        return suggestions.stream().map(Suggestion::label).toList();
+    }
+
+    private static BookChangeEvent saved(Book book) {
+        return new BookChangeEvent(BookChangeType.SAVED, book);
+    }
+
+    private static Book book(Long id, String title, String author, int rating) {
+        return Book.builder().id(id).title(title).author(author).rating(rating).visible(true).build();
+    }
+}